@@ -0,0 +1,81 @@
+package inferno.cube_game.benchmarks;
+
+import inferno.cube_game.common.levels.biomes.Biome;
+import inferno.cube_game.common.levels.biomes.BiomeSource;
+import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.common.levels.chunks.GenerationContext;
+import inferno.cube_game.common.levels.chunks.NoiseChunkGenerator;
+import inferno.cube_game.extras.math.FractalNoise;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Measures the cost of biomes per chunk column. heightMap runs the whole column including the biome blend, every
+ * column being new so the column cache always misses, and can be compared against a build without biomes. The other two compare the cached quarter resolution climate
+ * against sampling climate noise at every block. Columns are visited row by row like the world loads them.
+ * Scores are columns per second.
+ * @author inferno4you
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BiomeBenchmark {
+    private static final long SEED = 12345L;
+    private static final int ROW_LENGTH = 32; // Columns per row of the walk, about a load area across
+
+    private final float[] heightOffsets = new float[Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE];
+    private final float[] heightScales = new float[Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE];
+    private final Biome[] biomes = new Biome[Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE];
+    private final GenerationContext context = new GenerationContext(); // Scratch buffers reused like a generation worker does
+    private NoiseChunkGenerator chunkGenerator;
+    private BiomeSource biomeSource;
+    private FractalNoise temperatureNoise, humidityNoise;
+    private int originX, column;
+
+    @Setup
+    public void setup() {
+        chunkGenerator = new NoiseChunkGenerator(SEED);
+        biomeSource = new BiomeSource(SEED);
+        temperatureNoise = new FractalNoise.Builder().setSeed(1L).setFrequency(1.0 / 2048.0).setOctaves(2).build();
+        humidityNoise = new FractalNoise.Builder().setSeed(2L).setFrequency(1.0 / 2048.0).setOctaves(2).build();
+    }
+
+    @Setup(Level.Iteration)
+    public void moveOrigin() {
+        originX += 4096; // Start every iteration away from the regions cached so far
+        column = 0;
+    }
+
+    @Benchmark
+    public int[] heightMap() {
+        column++;
+        return chunkGenerator.getColumn(originX + column % ROW_LENGTH, column / ROW_LENGTH, context).getHeightMap();
+    }
+
+    @Benchmark
+    public Biome[] cachedClimate() {
+        column++;
+        biomeSource.sampleColumn(originX + column % ROW_LENGTH, column / ROW_LENGTH, heightOffsets, heightScales, biomes);
+        return biomes;
+    }
+
+    @Benchmark
+    public Biome[] perBlockClimate() {
+        column++;
+        int chunkX = originX + column % ROW_LENGTH, chunkZ = column / ROW_LENGTH;
+        for (int x = 0; x < Chunk.CHUNK_SIZE; x++) {
+            for (int z = 0; z < Chunk.CHUNK_SIZE; z++) {
+                double worldX = chunkX * Chunk.CHUNK_SIZE + x, worldZ = chunkZ * Chunk.CHUNK_SIZE + z;
+                Biome biome = Biome.fromClimate(temperatureNoise.sample(worldX, worldZ), humidityNoise.sample(worldX, worldZ));
+                heightOffsets[x * Chunk.CHUNK_SIZE + z] = biome.getHeightOffset();
+                heightScales[x * Chunk.CHUNK_SIZE + z] = biome.getHeightScale();
+                biomes[x * Chunk.CHUNK_SIZE + z] = biome;
+            }
+        }
+        return biomes;
+    }
+}
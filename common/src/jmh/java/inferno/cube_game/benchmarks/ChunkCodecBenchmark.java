@@ -0,0 +1,229 @@
+package inferno.cube_game.benchmarks;
+
+import inferno.cube_game.common.blocks.Block;
+import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.common.levels.chunks.NoiseChunkGenerator;
+import inferno.cube_game.common.levels.chunks.PackedIndexStorage;
+import inferno.cube_game.common.levels.storage.BlockIdMap;
+import inferno.cube_game.common.levels.storage.ChunkCodec;
+import inferno.cube_game.common.levels.storage.StoredChunk;
+import inferno.cube_game.common.registries.BlockRegistry;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares ChunkCodec, writing blocks by id and by name, against ObjectOutputStream on generated chunks from the sky
+ * down into the caves. Block is not Serializable, so the Java baseline serializes a mirror of the fields Chunk and
+ * Block hold, which is what default serialization would write if it worked. Scores are chunks per second, the bytes
+ * counter divided by a million gives MB/s. Encoded bytes per chunk are printed at setup.
+ * @author inferno4you
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ChunkCodecBenchmark {
+    private static final long SEED = 12345L;
+    private static final int CHUNKS_ACROSS = 4; // Columns per axis
+    private static final int LOWEST_CHUNK_Y = -2, HIGHEST_CHUNK_Y = 5;
+
+    private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(16 * 1024);
+    private final int[] noTreeRoots = new int[0];
+    private Chunk[] chunks;
+    private ChunkCodec idCodec, nameCodec;
+    private byte[][] encodedWithIds, encodedWithNames, serialized;
+    private int next;
+
+    @State(Scope.Thread)
+    @AuxCounters(AuxCounters.Type.OPERATIONS)
+    public static class Counters {
+        public long bytes; // Reported per second
+
+        @Setup(Level.Iteration)
+        public void reset() {
+            bytes = 0;
+        }
+    }
+
+    @Setup
+    public void setup() throws IOException {
+        if (BlockRegistry.AIR_BLOCK == null) BlockRegistry.registerDefaults(); // Once per JVM, also when not forking
+        NoiseChunkGenerator chunkGenerator = new NoiseChunkGenerator(SEED);
+        int height = HIGHEST_CHUNK_Y - LOWEST_CHUNK_Y + 1;
+        chunks = new Chunk[CHUNKS_ACROSS * CHUNKS_ACROSS * height];
+        int count = 0;
+        for (int x = 0; x < CHUNKS_ACROSS; x++) {
+            for (int z = 0; z < CHUNKS_ACROSS; z++) {
+                for (int y = LOWEST_CHUNK_Y; y <= HIGHEST_CHUNK_Y; y++) {
+                    chunks[count++] = chunkGenerator.generateChunk(x, y, z);
+                }
+            }
+        }
+
+        idCodec = new ChunkCodec(new BlockIdMap());
+        nameCodec = new ChunkCodec();
+        encodedWithIds = new byte[chunks.length][];
+        encodedWithNames = new byte[chunks.length][];
+        serialized = new byte[chunks.length][];
+        long idBytes = 0, nameBytes = 0, serializedBytes = 0;
+        for (int index = 0; index < chunks.length; index++) {
+            idBytes += (encodedWithIds[index] = encode(idCodec, chunks[index])).length;
+            nameBytes += (encodedWithNames[index] = encode(nameCodec, chunks[index])).length;
+            serializedBytes += (serialized[index] = serialize(chunks[index])).length;
+        }
+        System.out.printf("%nBytes per chunk: codec with ids %d, codec with names %d, ObjectOutputStream %d%n",
+            idBytes / chunks.length, nameBytes / chunks.length, serializedBytes / chunks.length);
+    }
+
+    @Benchmark
+    public int encodeWithIds(Counters counters) throws IOException {
+        return count(counters, encode(idCodec, nextChunk()).length);
+    }
+
+    @Benchmark
+    public int encodeWithNames(Counters counters) throws IOException {
+        return count(counters, encode(nameCodec, nextChunk()).length);
+    }
+
+    @Benchmark
+    public int encodeObjectOutputStream(Counters counters) throws IOException {
+        return count(counters, serialize(nextChunk()).length);
+    }
+
+    @Benchmark
+    public StoredChunk decodeWithIds(Counters counters) throws IOException {
+        byte[] data = encodedWithIds[nextIndex()];
+        counters.bytes += data.length;
+        return idCodec.decode(new DataInputStream(new ByteArrayInputStream(data)), 0, 0, 0);
+    }
+
+    @Benchmark
+    public StoredChunk decodeWithNames(Counters counters) throws IOException {
+        byte[] data = encodedWithNames[nextIndex()];
+        counters.bytes += data.length;
+        return nameCodec.decode(new DataInputStream(new ByteArrayInputStream(data)), 0, 0, 0);
+    }
+
+    @Benchmark
+    public Chunk decodeObjectInputStream(Counters counters) throws IOException, ClassNotFoundException {
+        byte[] data = serialized[nextIndex()];
+        counters.bytes += data.length;
+        try (ObjectInputStream input = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            return ((SerializedChunk) input.readObject()).toChunk();
+        }
+    }
+
+    private int nextIndex() {
+        next = (next + 1) % chunks.length;
+        return next;
+    }
+
+    private Chunk nextChunk() {
+        return chunks[nextIndex()];
+    }
+
+    private static int count(Counters counters, int length) {
+        counters.bytes += length;
+        return length;
+    }
+
+    private byte[] encode(ChunkCodec codec, Chunk chunk) throws IOException {
+        bytes.reset();
+        DataOutputStream output = new DataOutputStream(bytes);
+        codec.encode(chunk, noTreeRoots, output);
+        output.flush();
+        return bytes.toByteArray();
+    }
+
+    private byte[] serialize(Chunk chunk) throws IOException {
+        bytes.reset();
+        try (ObjectOutputStream output = new ObjectOutputStream(bytes)) {
+            output.writeObject(new SerializedChunk(chunk));
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * The state default serialization of Chunk would write: its arrays, counters and full palette blocks
+     */
+    private static final class SerializedChunk implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final int chunkX, chunkY, chunkZ;
+        private final SerializedBlock[] palette;
+        private final int bitsPerEntry;
+        private final long[] blockPaletteIndices;
+        private final int[] paletteReferenceCounts;
+        private final short[] layerNonAirCounts;
+        private final long[] faceOccupancy;
+        private final short[] faceNonAirCounts;
+        private final int nonAirCount, occupiedLayerMask, fullLayerMask;
+        private final long version;
+
+        private SerializedChunk(Chunk chunk) {
+            chunkX = chunk.getChunkX();
+            chunkY = chunk.getChunkY();
+            chunkZ = chunk.getChunkZ();
+            Block[] blocks = chunk.getPalette();
+            palette = new SerializedBlock[blocks.length];
+            for (int index = 0; index < blocks.length; index++) {
+                palette[index] = new SerializedBlock(blocks[index]);
+            }
+
+            short[] indices = chunk.getBlocks();
+            bitsPerEntry = PackedIndexStorage.bitsForPaletteSize(blocks.length);
+            PackedIndexStorage packed = new PackedIndexStorage(Chunk.CHUNK_VOLUME, bitsPerEntry);
+            paletteReferenceCounts = new int[blocks.length];
+            layerNonAirCounts = new short[Chunk.CHUNK_SIZE];
+            for (int index = 0; index < Chunk.CHUNK_VOLUME; index++) {
+                packed.set(index, indices[index]);
+                paletteReferenceCounts[indices[index]]++;
+                if (!blocks[indices[index]].isAir()) layerNonAirCounts[(index / Chunk.CHUNK_SIZE) % Chunk.CHUNK_SIZE]++;
+            }
+            blockPaletteIndices = packed.getData();
+            faceOccupancy = new long[6 * 4];
+            faceNonAirCounts = new short[6];
+            nonAirCount = chunk.getNonAirCount();
+            occupiedLayerMask = chunk.getOccupiedLayerMask();
+            fullLayerMask = chunk.getFullLayerMask();
+            version = chunk.getVersion();
+        }
+
+        private Chunk toChunk() {
+            Block[] blocks = new Block[palette.length];
+            for (int index = 0; index < palette.length; index++) {
+                blocks[index] = BlockRegistry.getBlock(palette[index].domain + ":" + palette[index].registryName);
+            }
+            if (blocks.length == 1) return new Chunk(chunkX, chunkY, chunkZ, blocks[0]);
+
+            PackedIndexStorage packed = new PackedIndexStorage(Chunk.CHUNK_VOLUME, bitsPerEntry);
+            System.arraycopy(blockPaletteIndices, 0, packed.getData(), 0, blockPaletteIndices.length);
+            short[] indices = new short[Chunk.CHUNK_VOLUME];
+            packed.copyInto(indices);
+            return new Chunk(chunkX, chunkY, chunkZ, blocks, indices);
+        }
+    }
+
+    private static final class SerializedBlock implements Serializable {
+        private static final long serialVersionUID = 1L;
+        private final String domain, registryName, unlocalizedName;
+        private final boolean solid, air, breakable, transparent;
+        private final float hardness;
+        private final String type;
+
+        private SerializedBlock(Block block) {
+            domain = block.getDomain();
+            registryName = block.getRegistryName();
+            unlocalizedName = block.getUnlocalizedName();
+            solid = block.isSolid();
+            air = block.isAir();
+            breakable = block.isBreakable();
+            transparent = block.isTransparent();
+            hardness = block.getHardness();
+            type = block.getType().name();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+package inferno.cube_game.benchmarks;
+
+import inferno.cube_game.extras.math.OpenSimplex2S;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares filling a chunk sized grid of 2D noise through noise2 point by point and through noise2Grid
+ * @author inferno4you
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class NoiseBenchmark {
+    private static final int SIZE = 16; // Samples per side, one chunk column
+
+    @Param({"0.03125", "0.000244140625"}) // Base and hill octave frequencies of the height map
+    public double step;
+
+    private final float[] values = new float[SIZE * SIZE];
+    private long seed = 12345L;
+    private double originX, originZ;
+
+    @Setup(Level.Iteration)
+    public void moveOrigin() {
+        originX += SIZE * step * 7;
+        originZ -= SIZE * step * 3;
+    }
+
+    @Benchmark
+    public float[] perPoint() {
+        for (int row = 0; row < SIZE; row++) {
+            for (int column = 0; column < SIZE; column++) {
+                values[row * SIZE + column] = OpenSimplex2S.noise2(seed, originX + column * step, originZ + row * step);
+            }
+        }
+        return values;
+    }
+
+    @Benchmark
+    public float[] grid() {
+        OpenSimplex2S.noise2Grid(seed, originX, originZ, step, step, SIZE, SIZE, values);
+        return values;
+    }
+}
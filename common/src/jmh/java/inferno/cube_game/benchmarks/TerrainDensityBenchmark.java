@@ -0,0 +1,59 @@
+package inferno.cube_game.benchmarks;
+
+import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.common.levels.chunks.ChunkColumn;
+import inferno.cube_game.common.levels.chunks.NoiseChunkGenerator;
+import inferno.cube_game.common.levels.chunks.TerrainDensity;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares filling the density of a chunk from the interpolated lattice against sampling 3D noise at every block.
+ * Scores are chunks per second.
+ * @author inferno4you
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@State(Scope.Thread)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TerrainDensityBenchmark {
+    private static final long SEED = 12345L;
+
+    private final float[] density = new float[Chunk.CHUNK_VOLUME];
+    private TerrainDensity terrainDensity;
+    private ChunkColumn column;
+    private int chunkY;
+
+    @Setup
+    public void setup() {
+        terrainDensity = new TerrainDensity(SEED);
+        column = new NoiseChunkGenerator(SEED).getColumn(0, 0);
+    }
+
+    @Benchmark
+    public float[] interpolated() {
+        chunkY = (chunkY + 1) & 7; // Walk down through the surface and cave layers
+        terrainDensity.fillDensity(column, 0, chunkY - 4, 0, density);
+        return density;
+    }
+
+    @Benchmark
+    public float[] perBlock() {
+        chunkY = (chunkY + 1) & 7;
+        int originY = (chunkY - 4) * Chunk.CHUNK_SIZE;
+        for (int x = 0; x < Chunk.CHUNK_SIZE; x++) {
+            for (int y = 0; y < Chunk.CHUNK_SIZE; y++) {
+                for (int z = 0; z < Chunk.CHUNK_SIZE; z++) {
+                    int worldY = originY + y;
+                    float blockDensity = column.getHeight(x, z) - worldY + terrainDensity.sampleOverhang(x, worldY, z);
+                    if (blockDensity >= 0f && terrainDensity.isCave(x, worldY, z)) blockDensity = -1f;
+                    density[x * Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE + y * Chunk.CHUNK_SIZE + z] = blockDensity;
+                }
+            }
+        }
+        return density;
+    }
+}
@@ -0,0 +1,18 @@
+package inferno.cube_game.common.levels;
+
+import inferno.cube_game.common.levels.chunks.Chunk;
+
+/**
+ * Notified when the world drops a generated chunk from memory, so it can be saved or its mesh disposed.
+ * Called on the thread running World#updateChunks, so implementations should hand off slow work.
+ * @see World#addEvictionListener(ChunkEvictionListener)
+ * @author inferno4you
+ */
+@FunctionalInterface
+public interface ChunkEvictionListener {
+    /**
+     * @param chunkKey packed key of the evicted chunk
+     * @param chunk the evicted chunk, no longer reachable through the world
+     */
+    void onChunkEvicted(long chunkKey, Chunk chunk);
+}
@@ -0,0 +1,202 @@
+package inferno.cube_game.common.levels;
+
+import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.common.levels.chunks.ChunkGenerator;
+import inferno.cube_game.common.levels.chunks.ChunkKey;
+import inferno.cube_game.common.levels.chunks.GenerationContext;
+import inferno.cube_game.common.levels.chunks.GenerationStage;
+import inferno.cube_game.common.levels.chunks.ProtoChunk;
+import inferno.cube_game.common.levels.storage.ChunkSaveService;
+import inferno.cube_game.common.levels.storage.StoredChunk;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.function.BiConsumer;
+import java.util.function.LongFunction;
+
+/**
+ * Moves chunks through the generation stages. A stage starts once the chunk and every neighbour within the
+ * stage's neighbour radius finished the previous stage, requesting those neighbours as needed.
+ * Stages that only depend on the chunk itself run straight after the previous one on the same thread,
+ * the others are queued on the scheduler so they run in parallel.
+ * With a storage, chunks saved before are read back in place of the noise stage and skip every later stage.
+ * @see GenerationStage
+ * @see ChunkGenerationScheduler
+ * @author inferno4you
+ */
+class ChunkGenerationPipeline {
+    private static final CompletableFuture<Chunk> EMPTY_STAGE = CompletableFuture.completedFuture(null); // Every chunk starts out empty
+
+    private final ChunkGenerator chunkGenerator;
+    private final ChunkGenerationScheduler scheduler;
+    private final ChunkSaveService chunkStorage; // Null when nothing is saved
+    private final LongFunction<LoadedChunk> entries; // Gets or creates the entry of a chunk
+    private final BiConsumer<LoadedChunk, Chunk> onCarved; // Called once a chunk's blocks exist, before decoration
+    private final BiConsumer<LoadedChunk, Chunk> onDecorated; // Called before the decorated chunk is handed out
+    private final ThreadLocal<GenerationContext> contexts = ThreadLocal.withInitial(GenerationContext::new); // Scratch buffers of each thread running stages
+
+    ChunkGenerationPipeline(ChunkGenerator chunkGenerator, ChunkGenerationScheduler scheduler, ChunkSaveService chunkStorage,
+                            LongFunction<LoadedChunk> entries, BiConsumer<LoadedChunk, Chunk> onCarved, BiConsumer<LoadedChunk, Chunk> onDecorated) {
+        this.chunkGenerator = chunkGenerator;
+        this.scheduler = scheduler;
+        this.chunkStorage = chunkStorage;
+        this.entries = entries;
+        this.onCarved = onCarved;
+        this.onDecorated = onDecorated;
+    }
+
+    /**
+     * Request a chunk to reach a stage. Returns the running request if there is one, and starts over if an
+     * earlier request was cancelled.
+     * @param entry chunk to advance
+     * @param stage stage to reach
+     * @return Future completed with the chunk, or null before the surface stage, once the stage finished
+     */
+    CompletableFuture<Chunk> request(LoadedChunk entry, GenerationStage stage) {
+        if (stage == GenerationStage.EMPTY) return EMPTY_STAGE;
+
+        while (true) {
+            CompletableFuture<Chunk> existing = entry.stageFutures.get(stage.ordinal());
+            if (existing != null && !existing.isCancelled()) return existing;
+
+            CompletableFuture<Chunk> created = new CompletableFuture<>();
+            if (!entry.stageFutures.compareAndSet(stage.ordinal(), existing, created)) continue; // Another thread started it
+            if (stage == GenerationStage.CARVERS) created.thenAccept(chunk -> onCarved.accept(entry, chunk));
+
+            start(entry, stage, created);
+            return created;
+        }
+    }
+
+    private void start(LoadedChunk entry, GenerationStage stage, CompletableFuture<Chunk> created) {
+        if (stage.getNeighbourRadius() > 0 && chunkStorage != null) {
+            // Find out whether the chunk itself was loaded before pulling in its neighbours, a loaded chunk needs none
+            request(entry, stage.previous()).whenComplete((chunk, throwable) -> {
+                if (throwable == null && entry.protoChunk.getStage().isAtLeast(stage)) complete(entry, stage, created, chunk);
+                else startWithNeighbours(entry, stage, created);
+            });
+            return;
+        }
+        startWithNeighbours(entry, stage, created);
+    }
+
+    private void startWithNeighbours(LoadedChunk entry, GenerationStage stage, CompletableFuture<Chunk> created) {
+        List<LoadedChunk> sources = getNeighbourhood(entry, stage.getNeighbourRadius());
+        CompletableFuture<?>[] dependencies = new CompletableFuture<?>[sources.size()];
+        for (int index = 0; index < dependencies.length; index++) {
+            dependencies[index] = request(sources.get(index), stage.previous());
+        }
+
+        CompletableFuture.allOf(dependencies).whenComplete((ignored, throwable) -> {
+            if (throwable != null) {
+                created.completeExceptionally(unwrap(throwable)); // Keeps cancellation visible through isCancelled
+                return;
+            }
+
+            List<ProtoChunk> neighbours = new ArrayList<>(sources.size());
+            for (LoadedChunk source : sources) {
+                neighbours.add(source.protoChunk);
+            }
+
+            ProtoChunk protoChunk = entry.protoChunk;
+            if (!needsWorker(entry, stage, neighbours)) {
+                runStage(entry, stage, neighbours, created);
+                return;
+            }
+
+            CompletableFuture<Chunk> queued = scheduler.submit(protoChunk.getChunkX(), protoChunk.getChunkY(), protoChunk.getChunkZ(), () -> {
+                if (stage != GenerationStage.NOISE || !load(protoChunk)) chunkGenerator.advance(protoChunk, stage, neighbours, contexts.get());
+                return protoChunk.getChunk();
+            });
+            queued.whenComplete((chunk, failure) -> {
+                if (failure != null) created.completeExceptionally(unwrap(failure));
+                else complete(entry, stage, created, chunk);
+            });
+        });
+    }
+
+    /**
+     * Decide whether a stage is worth a trip through the scheduler or can run on the current thread
+     */
+    private boolean needsWorker(LoadedChunk entry, GenerationStage stage, List<ProtoChunk> neighbours) {
+        ProtoChunk protoChunk = entry.protoChunk;
+        if (protoChunk.getStage().isAtLeast(stage)) return false; // Loaded from storage, nothing left to do
+        if (stage == GenerationStage.NOISE) { // Chunks the generator knows to be uniform need no noise at all, unless they may be stored
+            if (chunkStorage != null && !chunkStorage.isKnownAbsent(protoChunk.getChunkX(), protoChunk.getChunkY(), protoChunk.getChunkZ())) return true;
+            return chunkGenerator.getKnownUniformBlock(protoChunk.getChunkX(), protoChunk.getChunkY(), protoChunk.getChunkZ()) == null;
+        }
+        if (stage == GenerationStage.DECORATION) { // Nothing to place if no tree grows nearby
+            for (ProtoChunk neighbour : neighbours) {
+                if (neighbour.getTreeRoots().length > 0) return true;
+            }
+            return false;
+        }
+        return false; // Surface and carvers follow the noise stage on the same worker
+    }
+
+    /**
+     * Fill a proto chunk from storage if the chunk was saved before, run on a worker since it reads from disk
+     * @return true if the chunk was loaded and needs no generation
+     */
+    private boolean load(ProtoChunk protoChunk) throws IOException {
+        if (chunkStorage == null || protoChunk.getStage() != GenerationStage.EMPTY) return false;
+
+        StoredChunk storedChunk = chunkStorage.load(protoChunk.getChunkX(), protoChunk.getChunkY(), protoChunk.getChunkZ());
+        return storedChunk != null && protoChunk.setLoaded(storedChunk.getChunk(), storedChunk.getTreeRoots());
+    }
+
+    private void runStage(LoadedChunk entry, GenerationStage stage, List<ProtoChunk> neighbours, CompletableFuture<Chunk> created) {
+        try {
+            chunkGenerator.advance(entry.protoChunk, stage, neighbours, contexts.get());
+        } catch (Throwable throwable) {
+            created.completeExceptionally(throwable);
+            return;
+        }
+        complete(entry, stage, created, entry.protoChunk.getChunk());
+    }
+
+    /**
+     * Complete a stage, running the decoration hook first so nobody gets the chunk before it ran
+     */
+    private void complete(LoadedChunk entry, GenerationStage stage, CompletableFuture<Chunk> created, Chunk chunk) {
+        if (stage == GenerationStage.DECORATION && !created.isDone()) {
+            try {
+                onDecorated.accept(entry, chunk);
+            } catch (Throwable throwable) {
+                created.completeExceptionally(throwable);
+                return;
+            }
+        }
+        created.complete(chunk);
+    }
+
+    /**
+     * Get the entries of a chunk and its neighbours within a radius, the chunk itself first
+     */
+    private List<LoadedChunk> getNeighbourhood(LoadedChunk entry, int radius) {
+        if (radius == 0) return List.of(entry);
+
+        int diameter = radius * 2 + 1;
+        List<LoadedChunk> neighbourhood = new ArrayList<>(diameter * diameter * diameter);
+        neighbourhood.add(entry);
+
+        ProtoChunk protoChunk = entry.protoChunk;
+        for (int offsetX = -radius; offsetX <= radius; offsetX++) {
+            for (int offsetY = -radius; offsetY <= radius; offsetY++) {
+                for (int offsetZ = -radius; offsetZ <= radius; offsetZ++) {
+                    if (offsetX == 0 && offsetY == 0 && offsetZ == 0) continue;
+                    long key = ChunkKey.pack(protoChunk.getChunkX() + offsetX, protoChunk.getChunkY() + offsetY, protoChunk.getChunkZ() + offsetZ);
+                    neighbourhood.add(entries.apply(key));
+                }
+            }
+        }
+        return neighbourhood;
+    }
+
+    private static Throwable unwrap(Throwable throwable) {
+        return throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+    }
+}
@@ -0,0 +1,208 @@
+package inferno.cube_game.common.levels;
+
+import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.common.levels.chunks.ChunkKey;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.PriorityQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Runs chunk generation on a pool of worker threads, nearest chunks first.
+ * Queued work is ordered by distance to a focus chunk, weighted towards the view direction when one is known.
+ * Moving the focus re-sorts the queue and cancels queued chunks that left the load radius.
+ * @see World
+ * @author inferno4you
+ */
+public class ChunkGenerationScheduler {
+    private static final float BEHIND_VIEW_PENALTY = 1f; // Chunks straight behind the camera count as this much further away, relative to their distance
+
+    private final PriorityQueue<GenerationTask> queue = new PriorityQueue<>(Comparator.comparingDouble(task -> task.priority));
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition workAvailable = lock.newCondition();
+    private final Thread[] workers;
+    private volatile boolean running = true;
+
+    // Focus the queue is sorted around, guarded by lock
+    private int focusChunkX, focusChunkY, focusChunkZ;
+    private float viewDirectionX, viewDirectionY, viewDirectionZ; // Zero when there is no view direction
+    private int cancelRadius = Integer.MAX_VALUE;
+
+    /**
+     * Create a scheduler and start its worker threads
+     * @param threadCount number of worker threads
+     */
+    public ChunkGenerationScheduler(int threadCount) {
+        workers = new Thread[threadCount];
+        for (int index = 0; index < threadCount; index++) {
+            workers[index] = new Thread(this::runWorker, "ChunkGenerator-" + index);
+            workers[index].setDaemon(true);
+            workers[index].start();
+        }
+    }
+
+    /**
+     * Queue work producing a chunk
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @param work produces the chunk on a worker thread
+     * @return Future completed with the chunk, cancelled if the chunk leaves the load radius before it starts
+     */
+    public CompletableFuture<Chunk> submit(int chunkX, int chunkY, int chunkZ, Callable<Chunk> work) {
+        GenerationTask task = new GenerationTask(ChunkKey.pack(chunkX, chunkY, chunkZ), work);
+        lock.lock();
+        try {
+            if (!running) {
+                task.future.cancel(false);
+                return task.future;
+            }
+            task.priority = computePriority(task.key);
+            queue.add(task);
+            workAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+        return task.future;
+    }
+
+    /**
+     * Move the point generation is ordered around. Re-sorts the queue and cancels queued chunks further than
+     * the radius from the focus chunk along any axis. Does nothing if neither the focus chunk nor the view direction changed.
+     * @param chunkX focus chunk in x
+     * @param chunkY focus chunk in y
+     * @param chunkZ focus chunk in z
+     * @param directionX view direction in x, all zero to order by distance only
+     * @param directionY view direction in y
+     * @param directionZ view direction in z
+     * @param radius chunks outside this radius are cancelled
+     */
+    public void updateFocus(int chunkX, int chunkY, int chunkZ, float directionX, float directionY, float directionZ, int radius) {
+        float length = (float) Math.sqrt(directionX * directionX + directionY * directionY + directionZ * directionZ);
+        if (length > 0f) {
+            directionX /= length;
+            directionY /= length;
+            directionZ /= length;
+        }
+
+        ArrayList<GenerationTask> cancelled = new ArrayList<>();
+        lock.lock();
+        try {
+            boolean focusMoved = chunkX != focusChunkX || chunkY != focusChunkY || chunkZ != focusChunkZ || radius != cancelRadius;
+            float directionDot = directionX * viewDirectionX + directionY * viewDirectionY + directionZ * viewDirectionZ;
+            boolean directionChanged = length > 0f ? directionDot < 0.9f : viewDirectionX != 0f || viewDirectionY != 0f || viewDirectionZ != 0f;
+            if (!focusMoved && !directionChanged) return;
+
+            focusChunkX = chunkX;
+            focusChunkY = chunkY;
+            focusChunkZ = chunkZ;
+            viewDirectionX = directionX;
+            viewDirectionY = directionY;
+            viewDirectionZ = directionZ;
+            cancelRadius = radius;
+
+            ArrayList<GenerationTask> kept = new ArrayList<>(queue.size());
+            for (GenerationTask task : queue) {
+                if (isOutsideRadius(task.key)) {
+                    cancelled.add(task);
+                    continue;
+                }
+                task.priority = computePriority(task.key);
+                kept.add(task);
+            }
+            queue.clear();
+            queue.addAll(kept);
+        } finally {
+            lock.unlock();
+        }
+
+        // Cancel outside the lock, completion callbacks may submit or touch other locks
+        cancelled.forEach(task -> task.future.cancel(false));
+    }
+
+    public int getQueuedCount() {
+        lock.lock();
+        try {
+            return queue.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Stop the worker threads after their current chunk and cancel everything still queued
+     */
+    public void shutdown() {
+        ArrayList<GenerationTask> cancelled;
+        lock.lock();
+        try {
+            running = false;
+            cancelled = new ArrayList<>(queue);
+            queue.clear();
+            workAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+        cancelled.forEach(task -> task.future.cancel(false));
+    }
+
+    private boolean isOutsideRadius(long key) {
+        return Math.abs(ChunkKey.getX(key) - focusChunkX) > cancelRadius
+            || Math.abs(ChunkKey.getY(key) - focusChunkY) > cancelRadius
+            || Math.abs(ChunkKey.getZ(key) - focusChunkZ) > cancelRadius;
+    }
+
+    /**
+     * Lower is generated sooner. Squared distance to the focus, scaled up to twice as much for chunks behind the view direction.
+     */
+    private double computePriority(long key) {
+        float offsetX = ChunkKey.getX(key) - focusChunkX;
+        float offsetY = ChunkKey.getY(key) - focusChunkY;
+        float offsetZ = ChunkKey.getZ(key) - focusChunkZ;
+        float distanceSquared = offsetX * offsetX + offsetY * offsetY + offsetZ * offsetZ;
+        if (distanceSquared == 0f) return 0;
+
+        float facing = (offsetX * viewDirectionX + offsetY * viewDirectionY + offsetZ * viewDirectionZ) / (float) Math.sqrt(distanceSquared);
+        return distanceSquared * (1f + BEHIND_VIEW_PENALTY * (1f - facing) * 0.5f);
+    }
+
+    private void runWorker() {
+        while (running) {
+            GenerationTask task;
+            lock.lock();
+            try {
+                while (queue.isEmpty() && running) {
+                    workAvailable.awaitUninterruptibly();
+                }
+                if (!running) return;
+                task = queue.poll();
+            } finally {
+                lock.unlock();
+            }
+
+            if (task.future.isDone()) continue; // Cancelled while it was queued
+
+            try {
+                task.future.complete(task.work.call());
+            } catch (Throwable throwable) {
+                task.future.completeExceptionally(throwable);
+            }
+        }
+    }
+
+    private static final class GenerationTask {
+        private final long key;
+        private final Callable<Chunk> work;
+        private final CompletableFuture<Chunk> future = new CompletableFuture<>();
+        private double priority;
+
+        private GenerationTask(long key, Callable<Chunk> work) {
+            this.key = key;
+            this.work = work;
+        }
+    }
+}
@@ -0,0 +1,71 @@
+package inferno.cube_game.common.levels;
+
+import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.common.levels.chunks.ChunkKey;
+import inferno.cube_game.common.levels.chunks.GenerationStage;
+import inferno.cube_game.common.levels.chunks.ProtoChunk;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Entry the world keeps per requested chunk, tracking its generation stages and when it was last used
+ * @see World
+ * @see ChunkGenerationPipeline
+ * @author inferno4you
+ */
+class LoadedChunk {
+    final long key;
+    final ProtoChunk protoChunk;
+    final AtomicReferenceArray<CompletableFuture<Chunk>> stageFutures = new AtomicReferenceArray<>(GenerationStage.values().length); // Completed once the chunk reached each stage
+    volatile long lastAccessTick; // World update tick of the last getChunk call
+    private long chargedMemory; // Bytes added to the world's memory estimate when generation finished, guarded by this
+    private boolean evicted;
+
+    LoadedChunk(long key, long lastAccessTick) {
+        this.key = key;
+        this.protoChunk = new ProtoChunk(ChunkKey.getX(key), ChunkKey.getY(key), ChunkKey.getZ(key));
+        this.lastAccessTick = lastAccessTick;
+    }
+
+    /**
+     * Record the memory a finished chunk uses, unless it was already evicted
+     * @param bytes approximate size of the chunk
+     * @return Bytes to add to the world's estimate
+     */
+    synchronized long charge(long bytes) {
+        if (evicted) return 0;
+        chargedMemory = bytes;
+        return bytes;
+    }
+
+    /**
+     * Mark the entry evicted, so a chunk finishing afterwards is not charged, and cancel any stage still running
+     * @return Bytes to take off the world's estimate
+     */
+    long evict() {
+        long bytes;
+        synchronized (this) {
+            evicted = true;
+            bytes = chargedMemory;
+            chargedMemory = 0;
+        }
+
+        // Cancel outside the lock, cancellation runs the callbacks of dependent chunks
+        for (int stage = 0; stage < stageFutures.length(); stage++) {
+            CompletableFuture<Chunk> future = stageFutures.get(stage);
+            if (future != null) future.cancel(false); // Does nothing if it already finished
+        }
+        return bytes;
+    }
+
+    /**
+     * Get the chunk if it was fully generated
+     * @return Decorated chunk, or null while generating, after cancellation or on failure
+     */
+    Chunk getChunkNow() {
+        CompletableFuture<Chunk> future = stageFutures.get(GenerationStage.DECORATION.ordinal());
+        if (future == null || !future.isDone() || future.isCompletedExceptionally()) return null;
+        return future.getNow(null);
+    }
+}
@@ -0,0 +1,572 @@
+package inferno.cube_game.common.levels;
+
+import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.common.levels.chunks.ChunkGenerator;
+import inferno.cube_game.common.levels.chunks.ChunkKey;
+import inferno.cube_game.common.levels.chunks.ChunkMap;
+import inferno.cube_game.common.levels.chunks.GenerationStage;
+import inferno.cube_game.common.levels.storage.ChunkSaveService;
+import inferno.cube_game.common.levels.storage.EditJournal;
+import inferno.cube_game.common.levels.storage.RegionStorage;
+import inferno.cube_game.common.levels.storage.WorldInfo;
+import inferno.cube_game.common.registries.ChunkGeneratorRegistry;
+
+import java.io.*;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongConsumer;
+
+/**
+ * World class that manages chunks and chunk generation
+ * @see Chunk
+ * @see ChunkGenerator
+ * @author inferno4you
+ */
+public class World {
+    private static final int EVICTION_SCAN_SLOTS = 1024; // Map slots looked at per tick when searching for chunks to evict
+    private static final int UNLOAD_HYSTERESIS = 2; // Chunks this far past the load radius are evicted, so walking along a border does not thrash
+    private static final int TICKS_PER_CHUNK_DISTANCE = 20; // When over budget, one chunk further away counts like a second more idle
+    public static final int DEFAULT_GENERATION_THREADS = 4;
+
+    private final ChunkMap<LoadedChunk> loadingChunks; // Track chunks being generated
+    private final ChunkGenerationScheduler chunkGenerationScheduler;
+    private int chunkLoadRadius = 16; // Number of chunks to load around the player
+    private int chunkLoadVisableRadius = 8; // Number of chunks to load around the player
+    private final long seed; // World generation seed
+    private final String generatorId; // Registry id of the chunk generator
+    private final ChunkGenerator chunkGenerator;
+    private final ChunkGenerationPipeline chunkGenerationPipeline;
+    private final ChunkSaveService chunkSaveService; // Writes chunks to the region files they are loaded from, null to keep nothing
+    private long autosaveIntervalMillis = 5 * 60_000; // How often dirty chunks are queued for saving, their edits are journaled meanwhile
+    private long lastAutosaveMillis = System.currentTimeMillis(); // Only touched by the update thread
+    private long memoryBudgetBytes = 512L * 1024 * 1024; // Evict least recently used chunks while generated chunks use more than this
+    private int maxEvictionsPerTick = 256; // Bound on the eviction work done by one updateChunks call
+    private final AtomicLong chunkMemoryBytes = new AtomicLong(); // Approximate size of all generated chunks
+    private final List<ChunkEvictionListener> evictionListeners = new CopyOnWriteArrayList<>();
+    private final ArrayList<LoadedChunk> evictionCandidates = new ArrayList<>(); // Reused by evictChunks, only touched by the update thread
+    private volatile long updateTick; // Number of updateChunks calls, used as the clock for least recently used
+    private int evictionCursor; // Slot the next eviction scan starts at
+    private boolean hasLoadCenter; // Chunk the load cube was last built around, only touched by the update thread
+    private int loadCenterX, loadCenterY, loadCenterZ;
+    private long[] visibleChunkKeys; // Cached result of getChunkKeysToLoad for the center below
+    private int visibleCenterX, visibleCenterY, visibleCenterZ;
+
+    /**
+     * Create a new world with the noise generator
+     */
+    public World() {
+        this(0L, ChunkGeneratorRegistry.NOISE); //(System.currentTimeMillis() + System.nanoTime()) / 2
+    }
+
+    /**
+     * Create a new world
+     * @param seed world generation seed
+     * @param generatorId id of a generator in ChunkGeneratorRegistry
+     */
+    public World(long seed, String generatorId) {
+        this(seed, generatorId, DEFAULT_GENERATION_THREADS);
+    }
+
+    /**
+     * Create a new world
+     * @param seed world generation seed
+     * @param generatorId id of a generator in ChunkGeneratorRegistry
+     * @param generationThreads number of worker threads generating chunks
+     */
+    public World(long seed, String generatorId, int generationThreads) {
+        this(seed, generatorId, generationThreads, null);
+    }
+
+    /**
+     * Create a new world that loads chunks saved in a directory before generating them. Every block changed after a chunk
+     * was generated or loaded is journaled right away, and changed chunks are saved in the background every autosave
+     * interval, when evicted and on shutdown. Edits journaled but not saved when the game stopped are applied again.
+     * A new save records the seed and generator, see WorldInfo, and an existing one has to be opened with the same.
+     * @param seed world generation seed
+     * @param generatorId id of a generator in ChunkGeneratorRegistry
+     * @param generationThreads number of worker threads generating and loading chunks
+     * @param saveDirectory directory of the region files, null to keep nothing
+     * @throws IllegalStateException if the save was created with another seed or generator
+     */
+    public World(long seed, String generatorId, int generationThreads, Path saveDirectory) {
+        this.seed = seed;
+        this.generatorId = generatorId;
+        this.chunkGenerator = ChunkGeneratorRegistry.create(generatorId, seed);
+        this.chunkSaveService = saveDirectory == null ? null : openChunkSaveService(saveDirectory, seed, generatorId);
+        loadingChunks = new ChunkMap<>(); // Track chunks being generated by packed (X,Y,Z) coordinates of the chunk being generated
+        chunkGenerationScheduler = new ChunkGenerationScheduler(generationThreads); // Create worker threads for chunk generation, nearest chunks first
+        chunkGenerationPipeline = new ChunkGenerationPipeline(chunkGenerator, chunkGenerationScheduler, chunkSaveService, this::getOrCreateEntry, this::onChunkCarved, this::onChunkDecorated);
+    }
+
+    private static ChunkSaveService openChunkSaveService(Path saveDirectory, long seed, String generatorId) {
+        try {
+            WorldInfo.openOrCreate(saveDirectory, seed, generatorId);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open the world info in " + saveDirectory, e);
+        }
+
+        RegionStorage storage = new RegionStorage(saveDirectory);
+        try {
+            EditJournal journal = new EditJournal(saveDirectory, storage.getBlockIds());
+            return new ChunkSaveService(storage, ChunkSaveService.DEFAULT_CAPACITY, journal);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to open the edit journal in " + saveDirectory, e);
+        }
+    }
+
+    /**
+     * Get the key for a chunk based on its coordinates
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in y
+     * @return Chunk key
+     */
+    private long getChunkKey(int chunkX, int chunkY, int chunkZ) {
+        return ChunkKey.pack(chunkX, chunkY, chunkZ); // No allocation, X, Y and Z are packed into one long
+    }
+
+    /**
+     * Get a fully generated chunk from the world by its coordinates, requesting its generation if needed.
+     * Chunks still going through the generation stages are not returned.
+     * @param chunkX
+     * @param chunkY
+     * @param chunkZ
+     * @return Chunk object, or null while it is generated
+     */
+    public Chunk getChunk(int chunkX, int chunkY, int chunkZ) {
+        CompletableFuture<Chunk> future = requestChunk(chunkX, chunkY, chunkZ);
+        if (!future.isDone() || future.isCancelled()) return null;
+
+        try {
+            return future.get(); // Return chunk if it’s done
+        } catch (CancellationException e) {
+            return null; // Cancelled just now, requested again on the next call
+        } catch (InterruptedException | ExecutionException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Request a chunk to be fully generated, without waiting for it
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @return Future completed with the decorated chunk, cancelled if the chunk leaves the load radius or is evicted first
+     */
+    public CompletableFuture<Chunk> requestChunk(int chunkX, int chunkY, int chunkZ) {
+        long key = getChunkKey(chunkX, chunkY, chunkZ); // Generate key from coordinates
+        LoadedChunk loadedChunk = getOrCreateEntry(key); // Check if the chunk is being generated or already exists
+        loadedChunk.lastAccessTick = updateTick;
+
+        // Starts generation, or starts it over if it was cancelled after leaving the load radius
+        return chunkGenerationPipeline.request(loadedChunk, GenerationStage.DECORATION);
+    }
+
+    /**
+     * Get how far a chunk got through generation
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @return Last completed stage, EMPTY if the chunk was never requested or was evicted
+     */
+    public GenerationStage getGenerationStage(int chunkX, int chunkY, int chunkZ) {
+        LoadedChunk loadedChunk = loadingChunks.get(getChunkKey(chunkX, chunkY, chunkZ));
+        return loadedChunk == null ? GenerationStage.EMPTY : loadedChunk.protoChunk.getStage();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getGeneratorId() {
+        return generatorId;
+    }
+
+    public ChunkGenerator getChunkGenerator() {
+        return chunkGenerator;
+    }
+
+    /**
+     * @return Service chunks are saved through, or null if the world keeps nothing
+     */
+    public ChunkSaveService getChunkSaveService() {
+        return chunkSaveService;
+    }
+
+    public long getAutosaveIntervalMillis() {
+        return autosaveIntervalMillis;
+    }
+
+    /**
+     * Set how often changed chunks are queued for saving while the world updates
+     * @param autosaveIntervalMillis interval in milliseconds
+     */
+    public void setAutosaveIntervalMillis(long autosaveIntervalMillis) {
+        this.autosaveIntervalMillis = autosaveIntervalMillis;
+    }
+
+    private LoadedChunk getOrCreateEntry(long key) {
+        return loadingChunks.computeIfAbsent(key, k -> new LoadedChunk(k, updateTick));
+    }
+
+    /**
+     * Charge a chunk's size against the memory budget once its blocks exist
+     * @param loadedChunk entry of the chunk
+     * @param chunk carved chunk
+     */
+    private void onChunkCarved(LoadedChunk loadedChunk, Chunk chunk) {
+        chunkMemoryBytes.addAndGet(loadedChunk.charge(chunk.getApproximateMemoryUsage()));
+    }
+
+    /**
+     * Start journaling a chunk's edits, after applying those left from the last run, before anyone can change it
+     * @param loadedChunk entry of the chunk
+     * @param chunk decorated chunk
+     */
+    private void onChunkDecorated(LoadedChunk loadedChunk, Chunk chunk) {
+        if (chunkSaveService != null && chunkSaveService.getJournal() != null) chunkSaveService.getJournal().attach(chunk);
+    }
+
+    /**
+     * Register a hook called for every chunk dropped from memory, e.g. to save it or free its mesh
+     * @param listener called on the update thread
+     */
+    public void addEvictionListener(ChunkEvictionListener listener) {
+        evictionListeners.add(listener);
+    }
+
+    public void removeEvictionListener(ChunkEvictionListener listener) {
+        evictionListeners.remove(listener);
+    }
+
+    public long getMemoryBudgetBytes() {
+        return memoryBudgetBytes;
+    }
+
+    /**
+     * Set how much memory generated chunks may use before the least recently used ones outside view are evicted
+     * @param memoryBudgetBytes budget in bytes
+     */
+    public void setMemoryBudgetBytes(long memoryBudgetBytes) {
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    public int getMaxEvictionsPerTick() {
+        return maxEvictionsPerTick;
+    }
+
+    public void setMaxEvictionsPerTick(int maxEvictionsPerTick) {
+        this.maxEvictionsPerTick = maxEvictionsPerTick;
+    }
+
+    /**
+     * Get the approximate memory used by generated chunks, as charged when each finished generating
+     * @return Size in bytes
+     */
+    public long getChunkMemoryUsage() {
+        return chunkMemoryBytes.get();
+    }
+
+
+    /**
+     * Update the chunks around the player or passed in coordinates
+     * @param playerX position of the player in blocks in x
+     * @param playerY position of the player in blocks in y
+     * @param playerZ position of the player in blocks in z
+     */
+    public void updateChunks(float playerX, float playerY, float playerZ) {
+        updateChunks(playerX, playerY, playerZ, 0f, 0f, 0f);
+    }
+
+    /**
+     * Update the chunks around the player, generating the nearest chunks in view first
+     * @param playerX position of the player in blocks in x
+     * @param playerY position of the player in blocks in y
+     * @param playerZ position of the player in blocks in z
+     * @param viewX direction the player looks in x
+     * @param viewY direction the player looks in y
+     * @param viewZ direction the player looks in z, all three zero to order generation by distance only
+     */
+    public void updateChunks(float playerX, float playerY, float playerZ, float viewX, float viewY, float viewZ) {
+        int playerChunkX = (int) (playerX / Chunk.CHUNK_SIZE); // Get the player's chunk X coordinate
+        int playerChunkY = (int) (playerY / Chunk.CHUNK_SIZE); // Get the player's chunk Y coordinate
+        int playerChunkZ = (int) (playerZ / Chunk.CHUNK_SIZE); // Get the player's chunk Z coordinate
+        updateTick++;
+
+        // Re-sort queued generation around the player and drop queued chunks that left the load radius
+        chunkGenerationScheduler.updateFocus(playerChunkX, playerChunkY, playerChunkZ,
+            viewX, viewY, viewZ, chunkLoadRadius + GenerationStage.DECORATION.getNeighbourRadius());
+
+        // Only the slabs entering and leaving the load cube change when the player crosses into another chunk
+        boolean centerMoved = !hasLoadCenter || playerChunkX != loadCenterX || playerChunkY != loadCenterY || playerChunkZ != loadCenterZ;
+        if (centerMoved) {
+            int previousCenterX = loadCenterX, previousCenterY = loadCenterY, previousCenterZ = loadCenterZ;
+            boolean hadLoadCenter = hasLoadCenter;
+
+            forEachChunkOutside(playerChunkX, playerChunkY, playerChunkZ, hadLoadCenter, previousCenterX, previousCenterY, previousCenterZ, chunkKey -> {
+                // Generate terrain ahead of time, decoration waits until getChunk asks for the chunk since it pulls in all neighbours
+                chunkGenerationPipeline.request(getOrCreateEntry(chunkKey), GenerationStage.CARVERS);
+            });
+
+            hasLoadCenter = true;
+            loadCenterX = playerChunkX;
+            loadCenterY = playerChunkY;
+            loadCenterZ = playerChunkZ;
+        }
+
+        evictChunks(playerChunkX, playerChunkY, playerChunkZ); // Unload a bounded number of far or least recently used chunks
+
+        long now = System.currentTimeMillis();
+        if (chunkSaveService != null && now - lastAutosaveMillis >= autosaveIntervalMillis) {
+            lastAutosaveMillis = now;
+            autosave();
+        }
+    }
+
+    /**
+     * Queue every changed chunk for saving without waiting for it. Stops when the save queue is full,
+     * the remaining chunks stay dirty for the next autosave.
+     * @return Number of chunks queued
+     */
+    public int autosave() {
+        if (chunkSaveService == null) return 0;
+
+        int[] queued = new int[1];
+        boolean[] full = new boolean[1];
+        loadingChunks.forEach((key, loadedChunk) -> {
+            if (full[0]) return;
+
+            Chunk chunk = loadedChunk.getChunkNow();
+            if (chunk == null || !chunk.isDirty()) return;
+            if (chunkSaveService.trySubmit(chunk, loadedChunk.protoChunk.getTreeRoots())) queued[0]++;
+            else full[0] = true;
+        });
+        return queued[0];
+    }
+
+    /**
+     * Queue a fully generated chunk for saving even if it did not change since it was generated, waiting while the save
+     * queue is full. Chunks read back from the save without changes are stored already and skipped.
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @return false if the chunk is not fully generated or the world keeps nothing
+     * @throws InterruptedException if interrupted while waiting for room in the queue
+     */
+    public boolean saveChunk(int chunkX, int chunkY, int chunkZ) throws InterruptedException {
+        if (chunkSaveService == null) return false;
+
+        LoadedChunk loadedChunk = loadingChunks.get(getChunkKey(chunkX, chunkY, chunkZ));
+        Chunk chunk = loadedChunk == null ? null : loadedChunk.getChunkNow();
+        if (chunk == null) return false;
+
+        if (!loadedChunk.protoChunk.isLoaded() || chunk.isDirty()) chunkSaveService.submit(chunk, loadedChunk.protoChunk.getTreeRoots());
+        return true;
+    }
+
+    /**
+     * Drop a chunk from memory now instead of waiting for eviction, queueing it for saving first if it changed.
+     * For tools that generate without a player. Call from the thread updating the world.
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @return false if the chunk was not loaded, or it changed and the save queue is full so it stays
+     */
+    public boolean unloadChunk(int chunkX, int chunkY, int chunkZ) {
+        LoadedChunk loadedChunk = loadingChunks.get(getChunkKey(chunkX, chunkY, chunkZ));
+        return loadedChunk != null && evictChunk(loadedChunk);
+    }
+
+    /**
+     * Scan the next window of loaded chunks and evict at most maxEvictionsPerTick of them. Chunks past the load radius
+     * are always evicted, and while over the memory budget the least recently used chunks outside the visible radius
+     * go too, preferring those further away. A full pass over the map is spread over many ticks.
+     * @param playerChunkX
+     * @param playerChunkY
+     * @param playerChunkZ
+     */
+    private void evictChunks(int playerChunkX, int playerChunkY, int playerChunkZ) {
+        long tick = updateTick;
+        evictionCandidates.clear();
+        evictionCursor = loadingChunks.forEachInSlots(evictionCursor, EVICTION_SCAN_SLOTS, (key, loadedChunk) -> {
+            int distance = getChunkDistance(key, playerChunkX, playerChunkY, playerChunkZ);
+            if (distance > chunkLoadVisableRadius + 1) evictionCandidates.add(loadedChunk); // Never evict what is on screen
+        });
+
+        int evictions = 0;
+        boolean overBudget = chunkMemoryBytes.get() > memoryBudgetBytes;
+        if (overBudget) { // Evict in least recently used order, distance breaking ties
+            evictionCandidates.sort(Comparator.comparingLong(loadedChunk ->
+                -(tick - loadedChunk.lastAccessTick + (long) TICKS_PER_CHUNK_DISTANCE * getChunkDistance(loadedChunk.key, playerChunkX, playerChunkY, playerChunkZ))));
+        }
+
+        for (LoadedChunk loadedChunk : evictionCandidates) {
+            if (evictions >= maxEvictionsPerTick) break;
+
+            boolean outsideLoadRadius = getChunkDistance(loadedChunk.key, playerChunkX, playerChunkY, playerChunkZ) > chunkLoadRadius + UNLOAD_HYSTERESIS;
+            if (!outsideLoadRadius && !(overBudget && chunkMemoryBytes.get() > memoryBudgetBytes)) continue;
+
+            if (evictChunk(loadedChunk)) evictions++;
+        }
+        evictionCandidates.clear();
+    }
+
+    /**
+     * Drop a chunk from the world, cancelling its generation if it has not finished, queue it for saving if it changed
+     * and notify the eviction listeners
+     * @param loadedChunk entry to drop
+     * @return false if the chunk stays, because it changed and the save queue is full or it was dropped already
+     */
+    private boolean evictChunk(LoadedChunk loadedChunk) {
+        Chunk chunk = loadedChunk.getChunkNow();
+        if (chunk != null && chunkSaveService != null && chunk.isDirty()
+            && !chunkSaveService.trySubmit(chunk, loadedChunk.protoChunk.getTreeRoots())) {
+            return false; // Keep it until the queue has room, dropping it would lose the edits
+        }
+        if (!loadingChunks.remove(loadedChunk.key, loadedChunk)) return false;
+
+        chunkMemoryBytes.addAndGet(-loadedChunk.evict()); // Also cancels stages still running
+
+        chunk = loadedChunk.getChunkNow();
+        if (chunk == null) return true;
+        for (ChunkEvictionListener listener : evictionListeners) {
+            listener.onChunkEvicted(loadedChunk.key, chunk);
+        }
+        return true;
+    }
+
+    /**
+     * Get how far a chunk is from the player's chunk along the furthest axis, matching the shape of the load cube
+     */
+    private static int getChunkDistance(long key, int playerChunkX, int playerChunkY, int playerChunkZ) {
+        int distanceX = Math.abs(ChunkKey.getX(key) - playerChunkX);
+        int distanceY = Math.abs(ChunkKey.getY(key) - playerChunkY);
+        int distanceZ = Math.abs(ChunkKey.getZ(key) - playerChunkZ);
+        return Math.max(distanceX, Math.max(distanceY, distanceZ));
+    }
+
+    /**
+     * Visit the keys of every chunk in the load cube around a center that is not also in the load cube around another center.
+     * Costs O(r²) plus the number of visited chunks, instead of walking the whole cube.
+     * @param centerX center chunk in x of the cube to walk
+     * @param centerY center chunk in y of the cube to walk
+     * @param centerZ center chunk in z of the cube to walk
+     * @param hasOtherCenter false to visit the whole cube
+     * @param otherCenterX center chunk in x of the cube to leave out
+     * @param otherCenterY center chunk in y of the cube to leave out
+     * @param otherCenterZ center chunk in z of the cube to leave out
+     * @param action receives each packed chunk key
+     */
+    private void forEachChunkOutside(int centerX, int centerY, int centerZ, boolean hasOtherCenter,
+                                     int otherCenterX, int otherCenterY, int otherCenterZ, LongConsumer action) {
+        for (int chunkX = centerX - chunkLoadRadius; chunkX < centerX + chunkLoadRadius; chunkX++) {
+            boolean insideX = hasOtherCenter && chunkX >= otherCenterX - chunkLoadRadius && chunkX < otherCenterX + chunkLoadRadius;
+
+            for (int chunkY = centerY - chunkLoadRadius; chunkY < centerY + chunkLoadRadius; chunkY++) {
+                boolean insideXY = insideX && chunkY >= otherCenterY - chunkLoadRadius && chunkY < otherCenterY + chunkLoadRadius;
+
+                for (int chunkZ = centerZ - chunkLoadRadius; chunkZ < centerZ + chunkLoadRadius; chunkZ++) {
+                    if (insideXY && chunkZ >= otherCenterZ - chunkLoadRadius && chunkZ < otherCenterZ + chunkLoadRadius) {
+                        chunkZ = otherCenterZ + chunkLoadRadius - 1; // Skip the overlapping run
+                        continue;
+                    }
+                    action.accept(getChunkKey(chunkX, chunkY, chunkZ));
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the keys of chunks that should be loaded around the player within the @chunkLoadVisableRadius variable
+     * @param playerChunkX
+     * @param playerChunkY
+     * @param playerChunkZ
+     * @return Packed chunk keys to load
+     * @see ChunkKey
+     */
+    public long[] getChunkKeysToLoad(int playerChunkX, int playerChunkY, int playerChunkZ) {
+        // Rebuilt only when the player enters another chunk, callers must not modify the returned array
+        if (visibleChunkKeys == null || playerChunkX != visibleCenterX || playerChunkY != visibleCenterY || playerChunkZ != visibleCenterZ) {
+            visibleChunkKeys = getChunksKeysLoadedByWorld(playerChunkX, playerChunkY, playerChunkZ, chunkLoadVisableRadius);
+            visibleCenterX = playerChunkX;
+            visibleCenterY = playerChunkY;
+            visibleCenterZ = playerChunkZ;
+        }
+        return visibleChunkKeys;
+    }
+
+    /**
+     * Get the keys of chunks that should be loaded around the player or passed in coordinates within a certain radius
+     * @param playerChunkX
+     * @param playerChunkY
+     * @param playerChunkZ
+     * @param chunkLoadRadius
+     * @return Packed chunk keys to load
+     */
+    private long[] getChunksKeysLoadedByWorld(int playerChunkX, int playerChunkY, int playerChunkZ, int chunkLoadRadius) {
+        int diameter = chunkLoadRadius * 2; // Diameter of the chunk load radius
+        long[] chunkKeysToLoad = new long[diameter * diameter * diameter]; // Array of chunk keys to load
+        // Iterate over the range of chunks to load around the player
+
+        for (int index = 0; index < diameter * diameter * diameter; index++) {
+            int z = index % diameter;
+            int y = (index / diameter) % diameter;
+            int x = index / (diameter * diameter);
+
+            // Get the chunk coordinates around the player
+            int chunkX = (playerChunkX - chunkLoadRadius) + x;
+            int chunkY = (playerChunkY - chunkLoadRadius) + y;
+            int chunkZ = (playerChunkZ - chunkLoadRadius) + z;
+
+            // Add the chunk key to the list of chunks to load
+            chunkKeysToLoad[index] = getChunkKey(chunkX, chunkY, chunkZ);
+        }
+
+        return chunkKeysToLoad;
+    }
+
+    /**
+     * Get the X, Y, and Z coordinates of a chunk from its key. The key is formatted as "X,Y,Z".
+     * This method splits the key by commas and returns the X, Y, and Z coordinates.
+     * @param key
+     * @return Array containing the X, Y, and Z coordinates of the chunk
+     */
+    public int[] getChunkCoordinates(String key) {
+        String[] parts = key.split(",");
+        return new int[]{
+            Integer.parseInt(parts[0]),
+            Integer.parseInt(parts[1]),
+            Integer.parseInt(parts[2])
+        };
+    }
+
+    /**
+     * Shutdown the chunk generation scheduler, then save every changed chunk and close the region files.
+     * Waits until everything is written.
+     */
+    public void shutdown() {
+        chunkGenerationScheduler.shutdown();
+        if (chunkSaveService == null) return;
+
+        try {
+            loadingChunks.forEach((key, loadedChunk) -> {
+                Chunk chunk = loadedChunk.getChunkNow();
+                if (chunk == null || !chunk.isDirty()) return;
+                try {
+                    chunkSaveService.submit(chunk, loadedChunk.protoChunk.getTreeRoots());
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new RuntimeException("Interrupted while saving chunks", e);
+                }
+            });
+        } finally {
+            try {
+                chunkSaveService.close(); // Writes what was queued so far even if queueing failed
+            } catch (IOException e) {
+                throw new RuntimeException("Failed to close the region files in " + chunkSaveService.getStorage().getDirectory(), e);
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package inferno.cube_game.common.levels.biomes;
+
+import inferno.cube_game.common.blocks.Block;
+import inferno.cube_game.common.registries.BlockRegistry;
+
+import java.util.function.Supplier;
+
+/**
+ * Biomes chosen from temperature and humidity. Each one shapes the height map and picks the blocks of the soil.
+ * Blocks are looked up through suppliers, since the registry fills them in after the enum is loaded.
+ * @see BiomeSource
+ * @author inferno4you
+ */
+public enum Biome {
+    DESERT(4f, 0.6f, 4, 0, () -> BlockRegistry.SAND_BLOCK, () -> BlockRegistry.SAND_BLOCK),
+    PLAINS(0f, 0.7f, 3, 384, () -> BlockRegistry.GRASS_BLOCK, () -> BlockRegistry.DIRT_BLOCK),
+    FOREST(4f, 0.9f, 4, 40, () -> BlockRegistry.GRASS_BLOCK, () -> BlockRegistry.DIRT_BLOCK),
+    SWAMP(-6f, 0.5f, 3, 128, () -> BlockRegistry.GRASS_BLOCK, () -> BlockRegistry.DIRT_BLOCK),
+    HIGHLANDS(16f, 1.25f, 2, 192, () -> BlockRegistry.GRASS_BLOCK, () -> BlockRegistry.DIRT_BLOCK);
+
+    private static final Biome[] BIOMES = values(); // values() copies the array on every call
+    private static final float HOT = 0.3f, COLD = -0.3f; // Temperature bounds of the temperate biomes
+    private static final float HUMID = 0.1f; // Humidity above which temperate land is forest
+
+    private final float heightOffset;
+    private final float heightScale;
+    private final int soilDepth;
+    private final int treeChance;
+    private final Supplier<Block> surfaceBlock;
+    private final Supplier<Block> soilBlock;
+
+    /**
+     * @param heightOffset blocks added to the base height
+     * @param heightScale multiplier for the hill and mountain noise
+     * @param soilDepth blocks of surface and soil above the stone, at most Chunk.SOIL_DEPTH
+     * @param treeChance one in this many columns tries to grow a tree, 0 for none
+     * @param surfaceBlock top block of the soil
+     * @param soilBlock blocks below the top one
+     */
+    Biome(float heightOffset, float heightScale, int soilDepth, int treeChance, Supplier<Block> surfaceBlock, Supplier<Block> soilBlock) {
+        this.heightOffset = heightOffset;
+        this.heightScale = heightScale;
+        this.soilDepth = soilDepth;
+        this.treeChance = treeChance;
+        this.surfaceBlock = surfaceBlock;
+        this.soilBlock = soilBlock;
+    }
+
+    /**
+     * Pick the biome for a climate
+     * @param temperature temperature noise, roughly [-1, 1]
+     * @param humidity humidity noise, roughly [-1, 1]
+     * @return Biome
+     */
+    public static Biome fromClimate(float temperature, float humidity) {
+        if (temperature > HOT) return humidity < 0f ? DESERT : SWAMP;
+        if (temperature < COLD) return HIGHLANDS;
+        return humidity > HUMID ? FOREST : PLAINS;
+    }
+
+    public static Biome byOrdinal(int ordinal) {
+        return BIOMES[ordinal];
+    }
+
+    public float getHeightOffset() {
+        return heightOffset;
+    }
+
+    public float getHeightScale() {
+        return heightScale;
+    }
+
+    public int getSoilDepth() {
+        return soilDepth;
+    }
+
+    public int getTreeChance() {
+        return treeChance;
+    }
+
+    public Block getSurfaceBlock() {
+        return surfaceBlock.get();
+    }
+
+    public Block getSoilBlock() {
+        return soilBlock.get();
+    }
+}
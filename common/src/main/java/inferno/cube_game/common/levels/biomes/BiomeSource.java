@@ -0,0 +1,215 @@
+package inferno.cube_game.common.levels.biomes;
+
+import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.extras.math.FractalNoise;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Temperature and humidity at a quarter of the block resolution, cached per region of REGION_CHUNKS x REGION_CHUNKS
+ * chunk columns. Biome height parameters are smoothed over the neighbouring climate samples once per region,
+ * so per block lookups only interpolate between the four closest samples.
+ * @see Biome
+ * @author inferno4you
+ */
+public class BiomeSource {
+    public static final int CLIMATE_SCALE = 4; // Blocks between climate samples
+    public static final int REGION_CHUNKS = 8; // Chunk columns along each side of a cached region
+
+    private static final int REGION_CELLS = REGION_CHUNKS * Chunk.CHUNK_SIZE / CLIMATE_SCALE;
+    private static final int REGION_POINTS = REGION_CELLS + 1; // Samples along each side, including the far border
+    private static final int BLEND_RADIUS = 4; // Samples on each side averaged into the height parameters
+    private static final int SAMPLED_POINTS = REGION_POINTS + BLEND_RADIUS * 2; // Samples including the blend border
+    private static final float[] BLEND_WEIGHTS = tentWeights(BLEND_RADIUS); // Applied along x then z
+    private static final double CLIMATE_FREQUENCY = 1.0 / 2048.0;
+    private static final int REGION_CACHE_SIZE = 256; // Regions kept, each covers 8x8 columns
+
+    private final FractalNoise temperatureNoise;
+    private final FractalNoise humidityNoise;
+    private final AtomicReferenceArray<Region> regions = new AtomicReferenceArray<>(REGION_CACHE_SIZE);
+
+    public BiomeSource(long seed) {
+        temperatureNoise = new FractalNoise.Builder()
+            .setSeed(FractalNoise.mixSeed(seed, 48))
+            .setFrequency(CLIMATE_FREQUENCY)
+            .setOctaves(2)
+            .build();
+        humidityNoise = new FractalNoise.Builder()
+            .setSeed(FractalNoise.mixSeed(seed, 49))
+            .setFrequency(CLIMATE_FREQUENCY)
+            .setOctaves(2)
+            .build();
+    }
+
+    /**
+     * Fill the biome parameters of every block column of a chunk column
+     * @param chunkX column coordinate in x
+     * @param chunkZ column coordinate in z
+     * @param heightOffsets receives the blended height offsets, indexed x * CHUNK_SIZE + z
+     * @param heightScales receives the blended height scales, indexed x * CHUNK_SIZE + z
+     * @param biomes receives the biomes, indexed x * CHUNK_SIZE + z
+     */
+    public void sampleColumn(int chunkX, int chunkZ, float[] heightOffsets, float[] heightScales, Biome[] biomes) {
+        Region region = getRegion(Math.floorDiv(chunkX, REGION_CHUNKS), Math.floorDiv(chunkZ, REGION_CHUNKS));
+        int cellsPerChunk = Chunk.CHUNK_SIZE / CLIMATE_SCALE;
+        int originCellX = Math.floorMod(chunkX, REGION_CHUNKS) * cellsPerChunk;
+        int originCellZ = Math.floorMod(chunkZ, REGION_CHUNKS) * cellsPerChunk;
+
+        // Walk the climate cells covering the chunk, reading the four corners of each cell once
+        for (int cellX = 0; cellX < cellsPerChunk; cellX++) {
+            for (int cellZ = 0; cellZ < cellsPerChunk; cellZ++) {
+                int corner = (originCellZ + cellZ) * REGION_POINTS + originCellX + cellX;
+
+                for (int x = 0; x < CLIMATE_SCALE; x++) {
+                    for (int z = 0; z < CLIMATE_SCALE; z++) {
+                        float fractionX = x / (float) CLIMATE_SCALE, fractionZ = z / (float) CLIMATE_SCALE;
+                        int index = (cellX * CLIMATE_SCALE + x) * Chunk.CHUNK_SIZE + cellZ * CLIMATE_SCALE + z;
+
+                        heightOffsets[index] = Region.interpolate(region.heightOffsets, corner, fractionX, fractionZ);
+                        heightScales[index] = Region.interpolate(region.heightScales, corner, fractionX, fractionZ);
+                        biomes[index] = Biome.fromClimate(Region.interpolate(region.temperatures, corner, fractionX, fractionZ),
+                            Region.interpolate(region.humidities, corner, fractionX, fractionZ));
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the biome of one block column
+     * @param x block coordinate in x
+     * @param z block coordinate in z
+     * @return Biome
+     */
+    public Biome getBiome(int x, int z) {
+        int regionSize = REGION_CHUNKS * Chunk.CHUNK_SIZE;
+        Region region = getRegion(Math.floorDiv(x, regionSize), Math.floorDiv(z, regionSize));
+        int regionX = Math.floorMod(x, regionSize), regionZ = Math.floorMod(z, regionSize);
+        return Biome.fromClimate(Region.interpolate(region.temperatures, regionX, regionZ), Region.interpolate(region.humidities, regionX, regionZ));
+    }
+
+    public void clear() {
+        for (int slot = 0; slot < regions.length(); slot++) {
+            regions.set(slot, null);
+        }
+    }
+
+    /**
+     * Get a region from the cache, computing it on a miss. Like ChunkColumnCache, two threads may both compute
+     * the same region and either result is kept.
+     */
+    private Region getRegion(int regionX, int regionZ) {
+        long mixed = (((long) regionX << 32) ^ (regionZ & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+        int slot = (int) (mixed ^ (mixed >>> 32)) & (REGION_CACHE_SIZE - 1);
+
+        Region region = regions.get(slot);
+        if (region != null && region.regionX == regionX && region.regionZ == regionZ) return region;
+
+        region = new Region(regionX, regionZ);
+        sampleRegion(region);
+        regions.set(slot, region);
+        return region;
+    }
+
+    private void sampleRegion(Region region) {
+        // Sampled grids are laid out row by row with rows along z, including the blend border
+        double originX = ((double) region.regionX * REGION_CELLS - BLEND_RADIUS) * CLIMATE_SCALE;
+        double originZ = ((double) region.regionZ * REGION_CELLS - BLEND_RADIUS) * CLIMATE_SCALE;
+        float[] temperatures = new float[SAMPLED_POINTS * SAMPLED_POINTS];
+        float[] humidities = new float[SAMPLED_POINTS * SAMPLED_POINTS];
+        temperatureNoise.sampleGrid(originX, originZ, CLIMATE_SCALE, SAMPLED_POINTS, SAMPLED_POINTS, temperatures);
+        humidityNoise.sampleGrid(originX, originZ, CLIMATE_SCALE, SAMPLED_POINTS, SAMPLED_POINTS, humidities);
+
+        float[] offsets = new float[SAMPLED_POINTS * SAMPLED_POINTS];
+        float[] scales = new float[SAMPLED_POINTS * SAMPLED_POINTS];
+        for (int index = 0; index < offsets.length; index++) {
+            Biome biome = Biome.fromClimate(temperatures[index], humidities[index]);
+            offsets[index] = biome.getHeightOffset();
+            scales[index] = biome.getHeightScale();
+        }
+
+        for (int z = 0; z < REGION_POINTS; z++) {
+            for (int x = 0; x < REGION_POINTS; x++) {
+                int sampledIndex = (z + BLEND_RADIUS) * SAMPLED_POINTS + x + BLEND_RADIUS;
+                region.temperatures[z * REGION_POINTS + x] = temperatures[sampledIndex];
+                region.humidities[z * REGION_POINTS + x] = humidities[sampledIndex];
+            }
+        }
+        blend(offsets, region.heightOffsets);
+        blend(scales, region.heightScales);
+    }
+
+    /**
+     * Smooth the sampled grid with the separable tent filter, dropping the blend border
+     */
+    private static void blend(float[] sampled, float[] destination) {
+        float[] alongX = new float[SAMPLED_POINTS * REGION_POINTS];
+        for (int z = 0; z < SAMPLED_POINTS; z++) {
+            for (int x = 0; x < REGION_POINTS; x++) {
+                float sum = 0f;
+                for (int offset = 0; offset < BLEND_WEIGHTS.length; offset++) {
+                    sum += sampled[z * SAMPLED_POINTS + x + offset] * BLEND_WEIGHTS[offset];
+                }
+                alongX[z * REGION_POINTS + x] = sum;
+            }
+        }
+
+        for (int z = 0; z < REGION_POINTS; z++) {
+            for (int x = 0; x < REGION_POINTS; x++) {
+                float sum = 0f;
+                for (int offset = 0; offset < BLEND_WEIGHTS.length; offset++) {
+                    sum += alongX[(z + offset) * REGION_POINTS + x] * BLEND_WEIGHTS[offset];
+                }
+                destination[z * REGION_POINTS + x] = sum;
+            }
+        }
+    }
+
+    private static float[] tentWeights(int radius) {
+        float[] weights = new float[radius * 2 + 1];
+        float sum = 0f;
+        for (int offset = -radius; offset <= radius; offset++) {
+            weights[offset + radius] = radius + 1 - Math.abs(offset);
+            sum += weights[offset + radius];
+        }
+        for (int index = 0; index < weights.length; index++) {
+            weights[index] /= sum;
+        }
+        return weights;
+    }
+
+    /**
+     * Climate and blended height parameters at the samples of one region, laid out row by row with rows along z
+     */
+    private static final class Region {
+        private final int regionX, regionZ;
+        private final float[] temperatures = new float[REGION_POINTS * REGION_POINTS];
+        private final float[] humidities = new float[REGION_POINTS * REGION_POINTS];
+        private final float[] heightOffsets = new float[REGION_POINTS * REGION_POINTS];
+        private final float[] heightScales = new float[REGION_POINTS * REGION_POINTS];
+
+        private Region(int regionX, int regionZ) {
+            this.regionX = regionX;
+            this.regionZ = regionZ;
+        }
+
+        /**
+         * Bilinearly interpolate samples at a block inside the region
+         */
+        private static float interpolate(float[] samples, int x, int z) {
+            int cellX = x / CLIMATE_SCALE, cellZ = z / CLIMATE_SCALE;
+            float fractionX = (x - cellX * CLIMATE_SCALE) / (float) CLIMATE_SCALE;
+            float fractionZ = (z - cellZ * CLIMATE_SCALE) / (float) CLIMATE_SCALE;
+            return interpolate(samples, cellZ * REGION_POINTS + cellX, fractionX, fractionZ);
+        }
+
+        /**
+         * Bilinearly interpolate inside the cell whose near corner is at the given sample index
+         */
+        private static float interpolate(float[] samples, int corner, float fractionX, float fractionZ) {
+            float near = samples[corner] + (samples[corner + 1] - samples[corner]) * fractionX;
+            float far = samples[corner + REGION_POINTS] + (samples[corner + REGION_POINTS + 1] - samples[corner + REGION_POINTS]) * fractionX;
+            return near + (far - near) * fractionZ;
+        }
+    }
+}
@@ -0,0 +1,621 @@
+package inferno.cube_game.common.levels.chunks;
+
+import inferno.cube_game.common.blocks.Block;
+import inferno.cube_game.common.registries.BlockRegistry;
+
+import java.util.Arrays;
+import java.util.IdentityHashMap;
+
+/**
+ * Blocks of a CHUNK_SIZE³ cube, stored as a single block while uniform and as a palette with packed indices otherwise.
+ * Writes are synchronized. The getters take no lock: switching between uniform and palette storage is published
+ * through the volatile uniformBlock, but single writes into the palette storage are not, so threads other than the
+ * one editing the chunk should read through snapshot().
+ * @author inferno4you
+ */
+public class Chunk implements ChunkView {
+    public static final int CHUNK_SIZE = 16;
+    public static final int CHUNK_VOLUME = CHUNK_SIZE * CHUNK_SIZE * CHUNK_SIZE;
+    private static final int MAX_PALETTE_SIZE = 4096;
+    public static final int SOIL_DEPTH = 4; // Deepest soil of any biome, stone starts at most this far below the surface
+    private volatile Block uniformBlock; // Set while every block in the chunk is the same, palette and indices are null then. Cleared last and set first
+    private PackedIndexStorage blockPaletteIndices; // Bits per entry grow with the palette
+    private Block[] palette; // Array-based palette, grown on demand
+    private int[] paletteReferenceCounts; // Number of positions using each palette entry
+    private IdentityHashMap<Block, Short> paletteLookup; // Reverse index from block to palette entry
+    private short paletteSize;
+    private int unusedPaletteEntries; // Entries other than air with no references, reclaimed by compactPalette
+    private int nonAirCount; // Occupancy counters below are only kept while the chunk is not uniform
+    private short[] layerNonAirCounts; // Non air blocks per Y layer
+    private int occupiedLayerMask, fullLayerMask; // Bit Y is set when layer Y has any or only non air blocks
+    private long[] faceOccupancy; // 256 bit occupancy mask per ChunkFace, indexed by face ordinal * 4
+    private short[] faceNonAirCounts;
+    private int chunkX, chunkY, chunkZ;
+    private long version; // Bumped by every change to a block
+    private boolean dirty; // Set by every change to a block, cleared once the version with the change is saved
+    private boolean storageShared; // The latest snapshot shares the arrays above, copy them before writing
+    private ChunkSnapshot latestSnapshot;
+    private ChunkEditListener editListener; // Set once the chunk is generated, so generation itself is not reported
+
+    /**
+     * Create a chunk filled with a single block. No index storage is allocated until a different block is set.
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @param fillBlock Block every position starts as
+     */
+    public Chunk(int chunkX, int chunkY, int chunkZ, Block fillBlock) {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.chunkZ = chunkZ;
+        this.uniformBlock = fillBlock;
+    }
+
+    /**
+     * Create a frozen copy for a snapshot that shares every array with the source chunk
+     * @param source chunk to copy
+     */
+    private Chunk(Chunk source) {
+        this.chunkX = source.chunkX;
+        this.chunkY = source.chunkY;
+        this.chunkZ = source.chunkZ;
+        this.version = source.version;
+        this.uniformBlock = source.uniformBlock;
+        this.blockPaletteIndices = source.blockPaletteIndices;
+        this.palette = source.palette;
+        this.paletteSize = source.paletteSize;
+        this.nonAirCount = source.nonAirCount;
+        this.layerNonAirCounts = source.layerNonAirCounts;
+        this.occupiedLayerMask = source.occupiedLayerMask;
+        this.fullLayerMask = source.fullLayerMask;
+        this.faceOccupancy = source.faceOccupancy;
+        this.faceNonAirCounts = source.faceNonAirCounts;
+    }
+
+    /**
+     * Create a chunk from palette indices, e.g. read back from storage. Counters are rebuilt in a single pass instead
+     * of setting the blocks one by one, and palette entries no index uses are left out.
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @param blockPalette blocks the indices point at, may contain the same block more than once
+     * @param indices palette index of every block in X, Y, Z order
+     */
+    public Chunk(int chunkX, int chunkY, int chunkZ, Block[] blockPalette, short[] indices) {
+        this(chunkX, chunkY, chunkZ, BlockRegistry.AIR_BLOCK);
+
+        int[] counts = new int[blockPalette.length];
+        for (int index = 0; index < CHUNK_VOLUME; index++) {
+            counts[indices[index]]++;
+        }
+        for (int paletteIndex = 0; paletteIndex < blockPalette.length; paletteIndex++) {
+            if (counts[paletteIndex] == CHUNK_VOLUME) { // Only one block used, stay uniform
+                uniformBlock = blockPalette[paletteIndex];
+                return;
+            }
+        }
+
+        materialize(); // Palette with only air, every index zero
+        short[] remap = new short[blockPalette.length];
+        for (int paletteIndex = 0; paletteIndex < blockPalette.length; paletteIndex++) {
+            if (counts[paletteIndex] == 0) continue;
+
+            short chunkPaletteIndex = getOrAddToPalette(blockPalette[paletteIndex]);
+            remap[paletteIndex] = chunkPaletteIndex;
+            if (chunkPaletteIndex == 0) continue;
+
+            // Count the references right away, so adding the next entry does not compact this one away
+            if (paletteReferenceCounts[chunkPaletteIndex] == 0) unusedPaletteEntries--;
+            paletteReferenceCounts[chunkPaletteIndex] += counts[paletteIndex];
+            paletteReferenceCounts[0] -= counts[paletteIndex];
+        }
+
+        for (int index = 0; index < CHUNK_VOLUME; index++) {
+            short paletteIndex = remap[indices[index]];
+            if (paletteIndex == 0) continue;
+
+            blockPaletteIndices.set(index, paletteIndex);
+            if (!palette[paletteIndex].isAir()) updateOccupancy(index, true);
+        }
+    }
+
+    public Chunk(int chunkX, int chunkY, int chunkZ, int[] heightMap) {
+        this(chunkX, chunkY, chunkZ, BlockRegistry.AIR_BLOCK);
+
+        generateTerrain(heightMap);
+    }
+
+    private void generateTerrain(int[] heightMap) {
+        for (int index = 0; index < Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE; index++) {
+            int x = index / Chunk.CHUNK_SIZE;
+            int z = index % Chunk.CHUNK_SIZE;
+            int height = heightMap[x * CHUNK_SIZE + z];
+            int chunkYOffset = (chunkY * CHUNK_SIZE);
+
+            for (int y = 0; y < CHUNK_SIZE; y++) {
+                Block block = BlockRegistry.AIR_BLOCK;
+                if (y + chunkYOffset == height) {
+                    block = BlockRegistry.GRASS_BLOCK;
+                } else if (y + chunkYOffset <= height - 1 && y + chunkYOffset > height - SOIL_DEPTH) {
+                    block = BlockRegistry.DIRT_BLOCK;
+                } else if (y + chunkYOffset <= height - SOIL_DEPTH) {
+                    block = BlockRegistry.STONE_BLOCK;
+                }
+
+                if (block.isAir()) continue;
+
+                setBlockAtIndex(x * CHUNK_SIZE * CHUNK_SIZE + y * CHUNK_SIZE + z, block);
+            }
+        }
+    }
+
+    @Override
+    public Block getBlock(int x, int y, int z) {
+        if (x < 0 || x >= CHUNK_SIZE || y < 0 || y >= CHUNK_SIZE || z < 0 || z >= CHUNK_SIZE) {
+            return BlockRegistry.AIR_BLOCK;
+        }
+        if (uniformBlock != null) return uniformBlock;
+
+        int paletteIndex = blockPaletteIndices.get(x * CHUNK_SIZE * CHUNK_SIZE + y * CHUNK_SIZE + z);
+        return palette[paletteIndex];
+    }
+
+    public synchronized void setBlock(int x, int y, int z, Block block) {
+        if (x < 0 || x >= CHUNK_SIZE || y < 0 || y >= CHUNK_SIZE || z < 0 || z >= CHUNK_SIZE) {
+            return;
+        }
+        int index = x * CHUNK_SIZE * CHUNK_SIZE + y * CHUNK_SIZE + z;
+        long previousVersion = version;
+        setBlockAtIndex(index, block);
+        if (editListener != null && version != previousVersion) editListener.onBlockChanged(this, index, block, version);
+    }
+
+    /**
+     * Report every later change made through setBlock
+     * @param editListener listener to call, null to stop reporting
+     */
+    public synchronized void setEditListener(ChunkEditListener editListener) {
+        this.editListener = editListener;
+    }
+
+    private void setBlockAtIndex(int index, Block block) {
+        if (uniformBlock != null) {
+            if (uniformBlock == block) return; // Nothing changes, stay uniform
+            materialize();
+        } else {
+            if (palette[blockPaletteIndices.get(index)] == block) return;
+            if (storageShared) unshareStorage();
+        }
+        version++;
+        dirty = true;
+
+        short paletteIndex = getOrAddToPalette(block); // May compact the palette, so read the old index afterwards
+        int oldPaletteIndex = blockPaletteIndices.get(index);
+        if (oldPaletteIndex == paletteIndex) return;
+
+        boolean wasAir = palette[oldPaletteIndex].isAir();
+        if (wasAir != block.isAir()) updateOccupancy(index, !block.isAir());
+
+        blockPaletteIndices.set(index, paletteIndex);
+        paletteReferenceCounts[oldPaletteIndex]--;
+        if (paletteReferenceCounts[oldPaletteIndex] == 0 && oldPaletteIndex != 0) unusedPaletteEntries++;
+        if (paletteReferenceCounts[paletteIndex]++ == 0 && paletteIndex != 0) unusedPaletteEntries--;
+
+        if (paletteReferenceCounts[paletteIndex] == CHUNK_VOLUME) collapseToUniform(block);
+    }
+
+    /**
+     * Take an immutable snapshot of the chunk. Nothing is copied now, the chunk copies its storage on the next write instead.
+     * Calling this again before any change returns the same snapshot.
+     * @return Snapshot of the current blocks
+     */
+    public synchronized ChunkSnapshot snapshot() {
+        if (latestSnapshot != null && latestSnapshot.getVersion() == version) return latestSnapshot;
+
+        latestSnapshot = new ChunkSnapshot(new Chunk(this), version);
+        storageShared = uniformBlock == null;
+        return latestSnapshot;
+    }
+
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Check whether blocks changed since the chunk was generated, loaded or saved
+     * @return true if the chunk needs saving
+     */
+    public synchronized boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Clear the dirty flag once a version of the chunk is stored. Does nothing if the chunk changed after that version,
+     * so edits landing while a snapshot is written still get saved later.
+     * @param savedVersion version of the stored blocks, e.g. from ChunkSnapshot#getVersion
+     */
+    public synchronized void markClean(long savedVersion) {
+        if (version == savedVersion) dirty = false;
+    }
+
+    /**
+     * Copy every array the latest snapshot reads, so writes no longer show through it
+     */
+    private void unshareStorage() {
+        blockPaletteIndices = blockPaletteIndices.copy();
+        palette = palette.clone();
+        layerNonAirCounts = layerNonAirCounts.clone();
+        faceOccupancy = faceOccupancy.clone();
+        faceNonAirCounts = faceNonAirCounts.clone();
+        storageShared = false;
+    }
+
+    /**
+     * Expand a uniform chunk into palette and index storage so single blocks can differ
+     */
+    private void materialize() {
+        Block fillBlock = uniformBlock;
+        storageShared = false;
+        blockPaletteIndices = new PackedIndexStorage(CHUNK_VOLUME, PackedIndexStorage.bitsForPaletteSize(1));
+        palette = new Block[4];
+        paletteReferenceCounts = new int[4];
+        paletteLookup = new IdentityHashMap<>();
+        palette[0] = BlockRegistry.AIR_BLOCK; // Assign index 0 to AIR_BLOCK
+        paletteLookup.put(BlockRegistry.AIR_BLOCK, (short) 0);
+        paletteSize = 1;
+        unusedPaletteEntries = 0;
+        resetOccupancy(!fillBlock.isAir());
+
+        if (fillBlock.isAir()) {
+            paletteReferenceCounts[0] = CHUNK_VOLUME;
+        } else {
+            short fillIndex = getOrAddToPalette(fillBlock);
+            blockPaletteIndices.fill(fillIndex);
+            paletteReferenceCounts[fillIndex] = CHUNK_VOLUME;
+            unusedPaletteEntries = 0;
+        }
+        uniformBlock = null; // Only now, so readers that see null also see the storage built above
+    }
+
+    /**
+     * Drop the palette and index storage once every position holds the same block
+     * @param block Block filling the whole chunk
+     */
+    private void collapseToUniform(Block block) {
+        uniformBlock = block; // Before the storage goes away, so readers stop using it first
+        storageShared = false;
+        blockPaletteIndices = null;
+        palette = null;
+        paletteReferenceCounts = null;
+        paletteLookup = null;
+        paletteSize = 0;
+        unusedPaletteEntries = 0;
+        layerNonAirCounts = null;
+        faceOccupancy = null;
+        faceNonAirCounts = null;
+    }
+
+    /**
+     * Set every occupancy counter and mask as if the chunk was completely filled or completely empty
+     * @param filled whether every position holds a non air block
+     */
+    private void resetOccupancy(boolean filled) {
+        layerNonAirCounts = new short[CHUNK_SIZE];
+        faceOccupancy = new long[ChunkFace.values().length * 4];
+        faceNonAirCounts = new short[ChunkFace.values().length];
+        if (!filled) {
+            nonAirCount = 0;
+            occupiedLayerMask = 0;
+            fullLayerMask = 0;
+            return;
+        }
+
+        nonAirCount = CHUNK_VOLUME;
+        Arrays.fill(layerNonAirCounts, (short) (CHUNK_SIZE * CHUNK_SIZE));
+        Arrays.fill(faceOccupancy, -1L);
+        Arrays.fill(faceNonAirCounts, (short) (CHUNK_SIZE * CHUNK_SIZE));
+        occupiedLayerMask = (1 << CHUNK_SIZE) - 1;
+        fullLayerMask = (1 << CHUNK_SIZE) - 1;
+    }
+
+    /**
+     * Update the occupancy counters after a position switched between air and non air
+     * @param index position in the index storage
+     * @param occupied whether the position now holds a non air block
+     */
+    private void updateOccupancy(int index, boolean occupied) {
+        int x = index / (CHUNK_SIZE * CHUNK_SIZE);
+        int y = (index / CHUNK_SIZE) % CHUNK_SIZE;
+        int z = index % CHUNK_SIZE;
+        int delta = occupied ? 1 : -1;
+
+        nonAirCount += delta;
+        layerNonAirCounts[y] += delta;
+        if (layerNonAirCounts[y] == 0) occupiedLayerMask &= ~(1 << y); else occupiedLayerMask |= 1 << y;
+        if (layerNonAirCounts[y] == CHUNK_SIZE * CHUNK_SIZE) fullLayerMask |= 1 << y; else fullLayerMask &= ~(1 << y);
+
+        if (y == CHUNK_SIZE - 1) updateFaceOccupancy(ChunkFace.TOP, x, z, occupied);
+        if (y == 0) updateFaceOccupancy(ChunkFace.BOTTOM, x, z, occupied);
+        if (z == 0) updateFaceOccupancy(ChunkFace.NORTH, x, y, occupied);
+        if (z == CHUNK_SIZE - 1) updateFaceOccupancy(ChunkFace.SOUTH, x, y, occupied);
+        if (x == 0) updateFaceOccupancy(ChunkFace.WEST, y, z, occupied);
+        if (x == CHUNK_SIZE - 1) updateFaceOccupancy(ChunkFace.EAST, y, z, occupied);
+    }
+
+    private void updateFaceOccupancy(ChunkFace face, int u, int v, boolean occupied) {
+        int bit = u * CHUNK_SIZE + v;
+        int word = face.ordinal() * 4 + (bit >>> 6);
+        if (occupied) {
+            faceOccupancy[word] |= 1L << bit;
+            faceNonAirCounts[face.ordinal()]++;
+        } else {
+            faceOccupancy[word] &= ~(1L << bit);
+            faceNonAirCounts[face.ordinal()]--;
+        }
+    }
+
+    /**
+     * Get the palette index of a block, adding it to the palette if needed.
+     * Unused entries are compacted away before the palette grows past the current index width or overflows,
+     * and the index storage is repacked when the new entry still does not fit.
+     * @param block Block to look up
+     * @return Palette index of the block
+     */
+    private short getOrAddToPalette(Block block) {
+        Short existingIndex = paletteLookup.get(block);
+        if (existingIndex != null) return existingIndex;
+
+        if (unusedPaletteEntries > 0 && (paletteSize >= MAX_PALETTE_SIZE
+            || PackedIndexStorage.bitsForPaletteSize(paletteSize + 1) > blockPaletteIndices.getBitsPerEntry())) {
+            compactPalette();
+        }
+
+        if (paletteSize >= MAX_PALETTE_SIZE) {
+            throw new RuntimeException("Palette overflow in chunk!");
+        }
+
+        if (paletteSize == palette.length) {
+            int newLength = Math.min(palette.length * 2, MAX_PALETTE_SIZE);
+            palette = Arrays.copyOf(palette, newLength);
+            paletteReferenceCounts = Arrays.copyOf(paletteReferenceCounts, newLength);
+        }
+
+        int requiredBits = PackedIndexStorage.bitsForPaletteSize(paletteSize + 1);
+        if (requiredBits > blockPaletteIndices.getBitsPerEntry()) {
+            blockPaletteIndices = blockPaletteIndices.repack(requiredBits);
+        }
+
+        palette[paletteSize] = block;
+        paletteLookup.put(block, paletteSize);
+        unusedPaletteEntries++; // Unused until the caller stores it
+        return paletteSize++;
+    }
+
+    /**
+     * Remove palette entries that no block references anymore and repack the indices at the smallest width that fits.
+     * Air keeps index 0.
+     */
+    public synchronized void compactPalette() {
+        if (uniformBlock != null || unusedPaletteEntries == 0) return;
+        if (storageShared) unshareStorage();
+
+        short[] remap = new short[paletteSize];
+        short compactedSize = 1;
+        for (int index = 1; index < paletteSize; index++) {
+            if (paletteReferenceCounts[index] == 0) {
+                paletteLookup.remove(palette[index]);
+                continue;
+            }
+            remap[index] = compactedSize;
+            palette[compactedSize] = palette[index];
+            paletteReferenceCounts[compactedSize] = paletteReferenceCounts[index];
+            paletteLookup.put(palette[compactedSize], compactedSize);
+            compactedSize++;
+        }
+        Arrays.fill(palette, compactedSize, paletteSize, null);
+        Arrays.fill(paletteReferenceCounts, compactedSize, paletteSize, 0);
+
+        PackedIndexStorage compacted = new PackedIndexStorage(CHUNK_VOLUME, PackedIndexStorage.bitsForPaletteSize(compactedSize));
+        for (int index = 0; index < CHUNK_VOLUME; index++) {
+            compacted.set(index, remap[blockPaletteIndices.get(index)]);
+        }
+
+        blockPaletteIndices = compacted;
+        paletteSize = compactedSize;
+        unusedPaletteEntries = 0;
+    }
+
+    /**
+     * Estimate how many bytes the chunk keeps on the heap, for memory budgets. Not exact, object headers are guessed.
+     * @return Approximate size in bytes
+     */
+    public synchronized long getApproximateMemoryUsage() {
+        long bytes = 96; // Object header and fields
+        if (uniformBlock != null) return bytes;
+
+        bytes += 16 + blockPaletteIndices.getData().length * 8L;
+        bytes += 16 + palette.length * 8L + 16 + paletteReferenceCounts.length * 4L;
+        bytes += 64 + paletteSize * 48L; // Identity map table and boxed indices
+        bytes += 16 + layerNonAirCounts.length * 2L + 16 + faceOccupancy.length * 8L + 16 + faceNonAirCounts.length * 2L;
+        return bytes;
+    }
+
+    @Override
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    @Override
+    public int getChunkY() {
+        return chunkY;
+    }
+
+    @Override
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    @Override
+    public boolean isUniform() {
+        return uniformBlock != null;
+    }
+
+    @Override
+    public boolean onlyAir() {
+        if (uniformBlock != null) return uniformBlock.isAir();
+        return nonAirCount == 0;
+    }
+
+    @Override
+    public boolean hasNoAirInAnyLayer() {
+        if (uniformBlock != null) return !uniformBlock.isAir();
+        return nonAirCount == CHUNK_VOLUME;
+    }
+
+    @Override
+    public int getNonAirCount() {
+        if (uniformBlock != null) return uniformBlock.isAir() ? 0 : CHUNK_VOLUME;
+        return nonAirCount;
+    }
+
+    /**
+     * Get the Y layers that contain at least one non air block
+     * @return Bitmask with bit Y set for every occupied layer
+     */
+    @Override
+    public int getOccupiedLayerMask() {
+        if (uniformBlock != null) return uniformBlock.isAir() ? 0 : (1 << CHUNK_SIZE) - 1;
+        return occupiedLayerMask;
+    }
+
+    /**
+     * Get the Y layers that contain no air at all
+     * @return Bitmask with bit Y set for every full layer
+     */
+    @Override
+    public int getFullLayerMask() {
+        if (uniformBlock != null) return uniformBlock.isAir() ? 0 : (1 << CHUNK_SIZE) - 1;
+        return fullLayerMask;
+    }
+
+    /**
+     * Check if the outer slab of blocks on a face of the chunk has no air, so it hides whatever is behind it
+     * @param face Face of this chunk
+     * @return true if every block touching the face is non air
+     */
+    @Override
+    public boolean isFaceFull(ChunkFace face) {
+        if (uniformBlock != null) return !uniformBlock.isAir();
+        return faceNonAirCounts[face.ordinal()] == CHUNK_SIZE * CHUNK_SIZE;
+    }
+
+    /**
+     * Check if a single position on the outer slab of a face holds a non air block
+     * @param face Face of this chunk
+     * @param u first coordinate along the face, X for top, bottom, north and south, otherwise Y
+     * @param v second coordinate along the face, Z for top, bottom, west and east, otherwise Y
+     * @return true if the position is occupied
+     */
+    @Override
+    public boolean isFaceOccupied(ChunkFace face, int u, int v) {
+        if (uniformBlock != null) return !uniformBlock.isAir();
+        int bit = u * CHUNK_SIZE + v;
+        return (faceOccupancy[face.ordinal() * 4 + (bit >>> 6)] & (1L << bit)) != 0;
+    }
+
+    /**
+     * Get a copy of the palette indices of every block. Prefer copyInto or forEachBlock to avoid the allocation.
+     * @return Palette indices in X, Y, Z order
+     */
+    public short[] getBlocks() {
+        short[] blocks = new short[CHUNK_VOLUME];
+        copyInto(blocks);
+        return blocks;
+    }
+
+    /**
+     * Unpack the palette indices of every block into an existing array, in X, Y, Z order
+     * @param destination array of at least CHUNK_VOLUME entries
+     */
+    @Override
+    public void copyInto(short[] destination) {
+        if (destination.length < CHUNK_VOLUME) {
+            throw new IllegalArgumentException("Destination holds " + destination.length + " entries, needs " + CHUNK_VOLUME);
+        }
+        if (uniformBlock != null) {
+            Arrays.fill(destination, 0, CHUNK_VOLUME, (short) 0); // Every position points at the single palette entry
+            return;
+        }
+        blockPaletteIndices.copyInto(destination);
+    }
+
+    /**
+     * Visit every position of the chunk in X, Y, Z order
+     * @param visitor callback receiving the position and its palette index
+     */
+    @Override
+    public void forEachBlock(ChunkBlockVisitor visitor) {
+        for (int index = 0; index < CHUNK_VOLUME; index++) {
+            int paletteIndex = uniformBlock != null ? 0 : blockPaletteIndices.get(index);
+            visitor.visit(index / (CHUNK_SIZE * CHUNK_SIZE), (index / CHUNK_SIZE) % CHUNK_SIZE, index % CHUNK_SIZE, paletteIndex);
+        }
+    }
+
+    /**
+     * Visit every non air position of the chunk in X, Y, Z order. Layers without blocks are skipped entirely.
+     * @param visitor callback receiving the position and its palette index
+     */
+    @Override
+    public void forEachNonAirBlock(ChunkBlockVisitor visitor) {
+        if (uniformBlock != null) {
+            if (!uniformBlock.isAir()) forEachBlock(visitor);
+            return;
+        }
+        if (nonAirCount == 0) return;
+
+        for (int x = 0; x < CHUNK_SIZE; x++) {
+            for (int y = 0; y < CHUNK_SIZE; y++) {
+                if ((occupiedLayerMask & (1 << y)) == 0) continue;
+
+                int rowStart = x * CHUNK_SIZE * CHUNK_SIZE + y * CHUNK_SIZE;
+                for (int z = 0; z < CHUNK_SIZE; z++) {
+                    int paletteIndex = blockPaletteIndices.get(rowStart + z);
+                    if (palette[paletteIndex].isAir()) continue;
+                    visitor.visit(x, y, z, paletteIndex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Get the palette index of a block without resolving it
+     * @param x block X inside the chunk
+     * @param y block Y inside the chunk
+     * @param z block Z inside the chunk
+     * @return Palette index, resolve it with getPaletteBlock
+     */
+    @Override
+    public int getPaletteIndex(int x, int y, int z) {
+        if (uniformBlock != null) return 0;
+        return blockPaletteIndices.get(x * CHUNK_SIZE * CHUNK_SIZE + y * CHUNK_SIZE + z);
+    }
+
+    @Override
+    public Block getPaletteBlock(int paletteIndex) {
+        if (uniformBlock != null) return uniformBlock;
+        return palette[paletteIndex];
+    }
+
+    @Override
+    public int getPaletteSize() {
+        if (uniformBlock != null) return 1;
+        return paletteSize;
+    }
+
+    @Override
+    public Block[] getPalette() {
+        if (uniformBlock != null) return new Block[]{uniformBlock};
+
+        return Arrays.copyOf(palette, paletteSize);
+    }
+}
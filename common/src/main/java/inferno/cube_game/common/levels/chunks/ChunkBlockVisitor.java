@@ -0,0 +1,18 @@
+package inferno.cube_game.common.levels.chunks;
+
+/**
+ * Callback for walking the blocks of a chunk without copying its data
+ * @see Chunk#forEachBlock(ChunkBlockVisitor)
+ * @author inferno4you
+ */
+@FunctionalInterface
+public interface ChunkBlockVisitor {
+    /**
+     * Called once per visited position
+     * @param x block X inside the chunk
+     * @param y block Y inside the chunk
+     * @param z block Z inside the chunk
+     * @param paletteIndex palette index of the block, resolve it with Chunk#getPaletteBlock
+     */
+    void visit(int x, int y, int z, int paletteIndex);
+}
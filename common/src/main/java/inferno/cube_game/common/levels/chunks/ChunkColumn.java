@@ -0,0 +1,68 @@
+package inferno.cube_game.common.levels.chunks;
+
+import inferno.cube_game.common.levels.biomes.Biome;
+
+/**
+ * Terrain heights and biomes of one 16x16 column of chunks, shared by every chunk stacked in it
+ * @see ChunkColumnCache
+ * @author inferno4you
+ */
+public final class ChunkColumn {
+    private final int chunkX, chunkZ;
+    private final int[] heightMap; // Indexed x * CHUNK_SIZE + z like Chunk expects, never modified after construction
+    private final Biome[] biomes; // Indexed like the height map, never modified after construction
+    private final int minHeight, maxHeight;
+
+    /**
+     * @param chunkX column coordinate in x
+     * @param chunkZ column coordinate in z
+     * @param heightMap surface height of each block column, not copied and must not be changed afterwards
+     * @param biomes biome of each block column, indexed like the height map, not copied either
+     */
+    public ChunkColumn(int chunkX, int chunkZ, int[] heightMap, Biome[] biomes) {
+        this.chunkX = chunkX;
+        this.chunkZ = chunkZ;
+        this.heightMap = heightMap;
+        this.biomes = biomes;
+
+        int min = Integer.MAX_VALUE, max = Integer.MIN_VALUE;
+        for (int height : heightMap) {
+            min = Math.min(min, height);
+            max = Math.max(max, height);
+        }
+        this.minHeight = min;
+        this.maxHeight = max;
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    /**
+     * Get the shared height map, callers must not modify it
+     * @return Heights indexed x * CHUNK_SIZE + z
+     */
+    public int[] getHeightMap() {
+        return heightMap;
+    }
+
+    public int getHeight(int x, int z) {
+        return heightMap[x * Chunk.CHUNK_SIZE + z];
+    }
+
+    public Biome getBiome(int x, int z) {
+        return biomes[x * Chunk.CHUNK_SIZE + z];
+    }
+
+    public int getMinHeight() {
+        return minHeight;
+    }
+
+    public int getMaxHeight() {
+        return maxHeight;
+    }
+}
@@ -0,0 +1,69 @@
+package inferno.cube_game.common.levels.chunks;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed size, lock-free cache of chunk columns keyed by (chunkX, chunkZ).
+ * Each column maps to a single slot, so a column is evicted when another one hashing to the same slot is stored.
+ * Two threads missing on the same column may both compute it, the results are identical so either one is kept.
+ * @see ChunkGenerator
+ * @author inferno4you
+ */
+public class ChunkColumnCache {
+    private final AtomicReferenceArray<ChunkColumn> slots;
+    private final int mask;
+
+    /**
+     * @param capacity number of columns kept, rounded up to a power of two
+     */
+    public ChunkColumnCache(int capacity) {
+        int size = Integer.highestOneBit(Math.max(1, capacity - 1)) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    /**
+     * Get a column, computing and storing it if it is not cached
+     * @param chunkX column coordinate in x
+     * @param chunkZ column coordinate in z
+     * @param factory computes the column on a miss
+     * @return Cached or new column
+     */
+    public ChunkColumn get(int chunkX, int chunkZ, ColumnFactory factory) {
+        int slot = hash(chunkX, chunkZ) & mask;
+        ChunkColumn column = slots.get(slot);
+        if (column != null && column.getChunkX() == chunkX && column.getChunkZ() == chunkZ) return column;
+
+        column = factory.create(chunkX, chunkZ);
+        slots.set(slot, column); // Replaces whatever column used the slot before
+        return column;
+    }
+
+    /**
+     * Get a column only if it is already cached
+     * @param chunkX column coordinate in x
+     * @param chunkZ column coordinate in z
+     * @return Cached column or null
+     */
+    public ChunkColumn getIfPresent(int chunkX, int chunkZ) {
+        ChunkColumn column = slots.get(hash(chunkX, chunkZ) & mask);
+        if (column != null && column.getChunkX() == chunkX && column.getChunkZ() == chunkZ) return column;
+        return null;
+    }
+
+    public void clear() {
+        for (int slot = 0; slot < slots.length(); slot++) {
+            slots.set(slot, null);
+        }
+    }
+
+    private static int hash(int chunkX, int chunkZ) {
+        long mixed = (((long) chunkX << 32) ^ (chunkZ & 0xFFFFFFFFL)) * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    @FunctionalInterface
+    public interface ColumnFactory {
+        ChunkColumn create(int chunkX, int chunkZ);
+    }
+}
@@ -0,0 +1,20 @@
+package inferno.cube_game.common.levels.chunks;
+
+import inferno.cube_game.common.blocks.Block;
+
+/**
+ * Notified of every block a chunk changes through setBlock, e.g. to journal player edits before the chunk is saved.
+ * Called while the chunk is locked, so implementations must be quick and must not lock other chunks.
+ * @see Chunk#setEditListener(ChunkEditListener)
+ * @author inferno4you
+ */
+@FunctionalInterface
+public interface ChunkEditListener {
+    /**
+     * @param chunk the changed chunk
+     * @param index block index in the chunk, x * CHUNK_SIZE² + y * CHUNK_SIZE + z
+     * @param block the new block
+     * @param version version of the chunk with the change
+     */
+    void onBlockChanged(Chunk chunk, int index, Block block, long version);
+}
@@ -0,0 +1,50 @@
+package inferno.cube_game.common.levels.chunks;
+
+/**
+ * The six outer faces of a chunk, using the same names as block model faces
+ * @see Chunk
+ * @author inferno4you
+ */
+public enum ChunkFace {
+    TOP(0, 1, 0),
+    BOTTOM(0, -1, 0),
+    NORTH(0, 0, -1),
+    SOUTH(0, 0, 1),
+    WEST(-1, 0, 0),
+    EAST(1, 0, 0);
+
+    private final int offsetX, offsetY, offsetZ; // Direction to the neighbouring chunk behind this face
+
+    ChunkFace(int offsetX, int offsetY, int offsetZ) {
+        this.offsetX = offsetX;
+        this.offsetY = offsetY;
+        this.offsetZ = offsetZ;
+    }
+
+    public int getOffsetX() {
+        return offsetX;
+    }
+
+    public int getOffsetY() {
+        return offsetY;
+    }
+
+    public int getOffsetZ() {
+        return offsetZ;
+    }
+
+    /**
+     * Get the face of the neighbouring chunk that touches this one
+     * @return Opposite face
+     */
+    public ChunkFace opposite() {
+        return switch (this) {
+            case TOP -> BOTTOM;
+            case BOTTOM -> TOP;
+            case NORTH -> SOUTH;
+            case SOUTH -> NORTH;
+            case WEST -> EAST;
+            case EAST -> WEST;
+        };
+    }
+}
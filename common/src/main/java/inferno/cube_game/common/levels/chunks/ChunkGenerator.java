@@ -0,0 +1,82 @@
+package inferno.cube_game.common.levels.chunks;
+
+import inferno.cube_game.common.blocks.Block;
+
+import java.util.List;
+
+/**
+ * Produces the blocks of chunks, one generation stage at a time. Implementations are registered by id in
+ * ChunkGeneratorRegistry and each world picks one. Stages may run on any thread, so generators keep no mutable
+ * state outside the proto chunks and the per thread GenerationContext they are handed.
+ * @see GenerationStage
+ * @see NoiseChunkGenerator
+ * @author inferno4you
+ */
+public interface ChunkGenerator {
+    /**
+     * Do the work of one stage. Called by advance while it holds the proto chunk's lock, after the previous stage completed.
+     * The surface stage must leave a chunk on the proto chunk.
+     * @param protoChunk chunk to advance
+     * @param stage stage to run
+     * @param neighbours chunks within the stage's neighbour radius, including the chunk itself, that completed the previous stage
+     * @param context scratch buffers of the calling thread
+     */
+    void generateStage(ProtoChunk protoChunk, GenerationStage stage, List<ProtoChunk> neighbours, GenerationContext context);
+
+    /**
+     * Tell cheaply whether a chunk will be a single block throughout, so the noise stage can skip a worker thread
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @return The block, or null if it is unknown without running the noise stage
+     */
+    default Block getKnownUniformBlock(int chunkX, int chunkY, int chunkZ) {
+        return null;
+    }
+
+    /**
+     * Run one generation stage on a proto chunk. Does nothing if the chunk already reached the stage,
+     * so a stage whose result was dropped on the way can be requested again.
+     * @param protoChunk chunk to advance, must have completed the previous stage
+     * @param stage stage to run
+     * @param neighbours chunks within the stage's neighbour radius, including the chunk itself, that completed the previous stage
+     * @param context scratch buffers of the calling thread
+     */
+    default void advance(ProtoChunk protoChunk, GenerationStage stage, List<ProtoChunk> neighbours, GenerationContext context) {
+        synchronized (protoChunk) {
+            if (protoChunk.getStage().isAtLeast(stage)) return;
+            if (protoChunk.getStage() != stage.previous()) {
+                throw new IllegalStateException("Chunk at stage " + protoChunk.getStage() + " cannot enter " + stage);
+            }
+
+            generateStage(protoChunk, stage, neighbours, context);
+            protoChunk.setStage(stage);
+
+            Chunk chunk = protoChunk.getChunk();
+            if (stage == GenerationStage.DECORATION && chunk != null) {
+                chunk.markClean(chunk.getVersion()); // Generated blocks come out the same again, only later edits need saving
+            }
+        }
+    }
+
+    /**
+     * Generate a chunk on its own, up to and including the carvers stage. Decoration needs neighbouring chunks,
+     * so use advance to get decorated chunks.
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @param context scratch buffers of the calling thread
+     * @return Carved chunk
+     */
+    default Chunk generateChunk(int chunkX, int chunkY, int chunkZ, GenerationContext context) {
+        ProtoChunk protoChunk = new ProtoChunk(chunkX, chunkY, chunkZ);
+        advance(protoChunk, GenerationStage.NOISE, List.of(protoChunk), context);
+        advance(protoChunk, GenerationStage.SURFACE, List.of(protoChunk), context);
+        advance(protoChunk, GenerationStage.CARVERS, List.of(protoChunk), context);
+        return protoChunk.getChunk();
+    }
+
+    default Chunk generateChunk(int chunkX, int chunkY, int chunkZ) {
+        return generateChunk(chunkX, chunkY, chunkZ, new GenerationContext());
+    }
+}
@@ -0,0 +1,38 @@
+package inferno.cube_game.common.levels.chunks;
+
+/**
+ * Packs chunk coordinates into a single long so they can be used as map keys without allocating.
+ * Each axis gets 21 signed bits, enough for a million chunks in every direction.
+ * @see ChunkMap
+ * @author inferno4you
+ */
+public final class ChunkKey {
+    private static final int BITS = 21;
+    private static final long MASK = (1L << BITS) - 1L;
+
+    private ChunkKey() {
+    }
+
+    /**
+     * Get the key for a chunk based on its coordinates
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @return Packed key
+     */
+    public static long pack(int chunkX, int chunkY, int chunkZ) {
+        return ((chunkX & MASK) << (BITS * 2)) | ((chunkY & MASK) << BITS) | (chunkZ & MASK);
+    }
+
+    public static int getX(long key) {
+        return (int) (key << (64 - BITS * 3) >> (64 - BITS)); // Shift up to the sign bit and back to sign extend
+    }
+
+    public static int getY(long key) {
+        return (int) (key << (64 - BITS * 2) >> (64 - BITS));
+    }
+
+    public static int getZ(long key) {
+        return (int) (key << (64 - BITS) >> (64 - BITS));
+    }
+}
@@ -0,0 +1,265 @@
+package inferno.cube_game.common.levels.chunks;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.LongFunction;
+
+/**
+ * Open addressing hash map from packed chunk keys to values.
+ * Reads are lock free and never allocate, writes are serialized on the map. Removed entries leave a tombstone
+ * that only the same key can reuse, so a slot never changes key while readers may be probing it.
+ * Tombstones are dropped whenever the table is rebuilt.
+ * @param <V> value type
+ * @see ChunkKey
+ * @author inferno4you
+ */
+public class ChunkMap<V> {
+    private static final Object TOMBSTONE = new Object(); // Value of removed entries
+    private static final int MIN_CAPACITY = 16;
+
+    private volatile Table table;
+    private int size; // Live entries, guarded by this
+    private int usedSlots; // Live entries and tombstones, guarded by this
+
+    public ChunkMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * Create a map sized for an expected number of entries
+     * @param expectedSize number of entries to hold without rebuilding the table
+     */
+    public ChunkMap(int expectedSize) {
+        this.table = new Table(capacityFor(expectedSize));
+    }
+
+    /**
+     * Get the value stored for a key
+     * @param key packed chunk key
+     * @return Value or null if there is none
+     */
+    @SuppressWarnings("unchecked")
+    public V get(long key) {
+        Table current = table;
+        int slot = hash(key) & current.mask;
+        while (true) {
+            Object value = current.values.get(slot); // Volatile read, makes the key written before it visible
+            if (value == null) return null;
+            if (current.keys[slot] == key) return value == TOMBSTONE ? null : (V) value;
+            slot = (slot + 1) & current.mask;
+        }
+    }
+
+    public V get(int chunkX, int chunkY, int chunkZ) {
+        return get(ChunkKey.pack(chunkX, chunkY, chunkZ));
+    }
+
+    public boolean containsKey(long key) {
+        return get(key) != null;
+    }
+
+    /**
+     * Store a value for a key
+     * @param key packed chunk key
+     * @param value value to store, not null
+     * @return Previous value or null
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V put(long key, V value) {
+        if (value == null) throw new NullPointerException("ChunkMap does not store null values");
+
+        Table current = table;
+        int slot = findSlot(current, key);
+        Object previous = current.values.get(slot);
+        if (previous == null) {
+            if ((usedSlots + 1) * 2 > current.keys.length) {
+                rebuild(capacityFor(size + 1));
+                return put(key, value);
+            }
+            current.keys[slot] = key;
+            usedSlots++;
+        }
+        current.values.set(slot, value);
+        if (previous == null || previous == TOMBSTONE) {
+            size++;
+            return null;
+        }
+        return (V) previous;
+    }
+
+    /**
+     * Get the value for a key, creating it while holding the write lock if there is none
+     * @param key packed chunk key
+     * @param factory creates the value from the key, must not return null
+     * @return Existing or created value
+     */
+    public V computeIfAbsent(long key, LongFunction<V> factory) {
+        V value = get(key);
+        if (value != null) return value;
+
+        synchronized (this) {
+            value = get(key);
+            if (value != null) return value;
+
+            value = factory.apply(key);
+            put(key, value);
+            return value;
+        }
+    }
+
+    /**
+     * Remove the value stored for a key
+     * @param key packed chunk key
+     * @return Removed value or null
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized V remove(long key) {
+        Table current = table;
+        int slot = findSlot(current, key);
+        Object previous = current.values.get(slot);
+        if (previous == null || previous == TOMBSTONE) return null;
+
+        current.values.set(slot, TOMBSTONE);
+        size--;
+        return (V) previous;
+    }
+
+    /**
+     * Remove a key only while it still maps to the given value
+     * @param key packed chunk key
+     * @param value expected value
+     * @return true if the entry was removed
+     */
+    public synchronized boolean remove(long key, V value) {
+        if (get(key) != value) return false;
+        remove(key);
+        return true;
+    }
+
+    /**
+     * Remove every entry matching a predicate
+     * @param predicate test receiving the key and value
+     * @return Number of removed entries
+     */
+    @SuppressWarnings("unchecked")
+    public synchronized int removeIf(EntryPredicate<V> predicate) {
+        Table current = table;
+        int removed = 0;
+        for (int slot = 0; slot < current.keys.length; slot++) {
+            Object value = current.values.get(slot);
+            if (value == null || value == TOMBSTONE) continue;
+            if (!predicate.test(current.keys[slot], (V) value)) continue;
+
+            current.values.set(slot, TOMBSTONE);
+            removed++;
+        }
+        size -= removed;
+        return removed;
+    }
+
+    /**
+     * Visit every entry. Runs without locking, so entries written concurrently may or may not be seen.
+     * @param consumer callback receiving the key and value
+     */
+    @SuppressWarnings("unchecked")
+    public void forEach(EntryConsumer<V> consumer) {
+        Table current = table;
+        for (int slot = 0; slot < current.keys.length; slot++) {
+            Object value = current.values.get(slot);
+            if (value == null || value == TOMBSTONE) continue;
+            consumer.accept(current.keys[slot], (V) value);
+        }
+    }
+
+    /**
+     * Visit the entries in a window of table slots, for spreading a full pass over many calls.
+     * Runs without locking like forEach.
+     * @param startSlot first slot to look at, wrapped to the table size
+     * @param slotCount number of slots to look at
+     * @param consumer callback receiving the key and value
+     * @return Slot to continue from on the next call
+     */
+    @SuppressWarnings("unchecked")
+    public int forEachInSlots(int startSlot, int slotCount, EntryConsumer<V> consumer) {
+        Table current = table;
+        int slot = startSlot & current.mask;
+        for (int visited = 0; visited < slotCount && visited < current.keys.length; visited++) {
+            Object value = current.values.get(slot);
+            if (value != null && value != TOMBSTONE) consumer.accept(current.keys[slot], (V) value);
+            slot = (slot + 1) & current.mask;
+        }
+        return slot;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized void clear() {
+        table = new Table(MIN_CAPACITY);
+        size = 0;
+        usedSlots = 0;
+    }
+
+    /**
+     * Find the slot holding a key, or the empty slot that ends its probe chain
+     */
+    private static int findSlot(Table current, long key) {
+        int slot = hash(key) & current.mask;
+        while (true) {
+            Object value = current.values.get(slot);
+            if (value == null || current.keys[slot] == key) return slot;
+            slot = (slot + 1) & current.mask;
+        }
+    }
+
+    /**
+     * Copy the live entries into a new table and publish it, dropping all tombstones
+     */
+    private void rebuild(int capacity) {
+        Table current = table;
+        Table rebuilt = new Table(capacity);
+        for (int slot = 0; slot < current.keys.length; slot++) {
+            Object value = current.values.get(slot);
+            if (value == null || value == TOMBSTONE) continue;
+
+            int newSlot = findSlot(rebuilt, current.keys[slot]);
+            rebuilt.keys[newSlot] = current.keys[slot];
+            rebuilt.values.set(newSlot, value);
+        }
+        usedSlots = size;
+        table = rebuilt;
+    }
+
+    private static int capacityFor(int entries) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < entries * 2 + 2) capacity <<= 1; // Keep the load factor at or below one half
+        return capacity;
+    }
+
+    private static int hash(long key) {
+        long mixed = key * 0x9E3779B97F4A7C15L;
+        return (int) (mixed ^ (mixed >>> 32));
+    }
+
+    private static final class Table {
+        private final long[] keys;
+        private final AtomicReferenceArray<Object> values;
+        private final int mask;
+
+        private Table(int capacity) {
+            this.keys = new long[capacity];
+            this.values = new AtomicReferenceArray<>(capacity);
+            this.mask = capacity - 1;
+        }
+    }
+
+    @FunctionalInterface
+    public interface EntryConsumer<V> {
+        void accept(long key, V value);
+    }
+
+    @FunctionalInterface
+    public interface EntryPredicate<V> {
+        boolean test(long key, V value);
+    }
+}
@@ -0,0 +1,123 @@
+package inferno.cube_game.common.levels.chunks;
+
+import inferno.cube_game.common.blocks.Block;
+
+/**
+ * Immutable view of a chunk at a given version. It shares storage with the live chunk, which copies its
+ * arrays before the next write, so meshing, saving and lighting workers can read it without locks while
+ * edits keep landing on the chunk.
+ * @see Chunk#snapshot()
+ * @author inferno4you
+ */
+public final class ChunkSnapshot implements ChunkView {
+    private final Chunk frozen; // Private copy of the chunk that is never written to
+    private final long version;
+
+    ChunkSnapshot(Chunk frozen, long version) {
+        this.frozen = frozen;
+        this.version = version;
+    }
+
+    /**
+     * Get the chunk version this snapshot was taken at
+     * @return Version, compare with Chunk#getVersion to see if the live chunk changed since
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    @Override
+    public int getChunkX() {
+        return frozen.getChunkX();
+    }
+
+    @Override
+    public int getChunkY() {
+        return frozen.getChunkY();
+    }
+
+    @Override
+    public int getChunkZ() {
+        return frozen.getChunkZ();
+    }
+
+    @Override
+    public Block getBlock(int x, int y, int z) {
+        return frozen.getBlock(x, y, z);
+    }
+
+    @Override
+    public boolean isUniform() {
+        return frozen.isUniform();
+    }
+
+    @Override
+    public boolean onlyAir() {
+        return frozen.onlyAir();
+    }
+
+    @Override
+    public boolean hasNoAirInAnyLayer() {
+        return frozen.hasNoAirInAnyLayer();
+    }
+
+    @Override
+    public int getNonAirCount() {
+        return frozen.getNonAirCount();
+    }
+
+    @Override
+    public int getOccupiedLayerMask() {
+        return frozen.getOccupiedLayerMask();
+    }
+
+    @Override
+    public int getFullLayerMask() {
+        return frozen.getFullLayerMask();
+    }
+
+    @Override
+    public boolean isFaceFull(ChunkFace face) {
+        return frozen.isFaceFull(face);
+    }
+
+    @Override
+    public boolean isFaceOccupied(ChunkFace face, int u, int v) {
+        return frozen.isFaceOccupied(face, u, v);
+    }
+
+    @Override
+    public void copyInto(short[] destination) {
+        frozen.copyInto(destination);
+    }
+
+    @Override
+    public void forEachBlock(ChunkBlockVisitor visitor) {
+        frozen.forEachBlock(visitor);
+    }
+
+    @Override
+    public void forEachNonAirBlock(ChunkBlockVisitor visitor) {
+        frozen.forEachNonAirBlock(visitor);
+    }
+
+    @Override
+    public int getPaletteIndex(int x, int y, int z) {
+        return frozen.getPaletteIndex(x, y, z);
+    }
+
+    @Override
+    public Block getPaletteBlock(int paletteIndex) {
+        return frozen.getPaletteBlock(paletteIndex);
+    }
+
+    @Override
+    public int getPaletteSize() {
+        return frozen.getPaletteSize();
+    }
+
+    @Override
+    public Block[] getPalette() {
+        return frozen.getPalette();
+    }
+}
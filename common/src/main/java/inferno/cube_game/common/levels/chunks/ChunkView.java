@@ -0,0 +1,90 @@
+package inferno.cube_game.common.levels.chunks;
+
+import inferno.cube_game.common.blocks.Block;
+
+/**
+ * Read only access to the blocks of a chunk, shared by live chunks and their snapshots
+ * @see Chunk
+ * @see ChunkSnapshot
+ * @author inferno4you
+ */
+public interface ChunkView {
+    int getChunkX();
+
+    int getChunkY();
+
+    int getChunkZ();
+
+    /**
+     * Get a block inside the chunk, positions outside of it read as air
+     * @param x block X inside the chunk
+     * @param y block Y inside the chunk
+     * @param z block Z inside the chunk
+     * @return Block at the position
+     */
+    Block getBlock(int x, int y, int z);
+
+    boolean isUniform();
+
+    boolean onlyAir();
+
+    boolean hasNoAirInAnyLayer();
+
+    int getNonAirCount();
+
+    int getOccupiedLayerMask();
+
+    int getFullLayerMask();
+
+    boolean isFaceFull(ChunkFace face);
+
+    boolean isFaceOccupied(ChunkFace face, int u, int v);
+
+    void copyInto(short[] destination);
+
+    void forEachBlock(ChunkBlockVisitor visitor);
+
+    void forEachNonAirBlock(ChunkBlockVisitor visitor);
+
+    int getPaletteIndex(int x, int y, int z);
+
+    Block getPaletteBlock(int paletteIndex);
+
+    int getPaletteSize();
+
+    Block[] getPalette();
+
+    default boolean isFaceNotVisible(int x, int y, int z, String face) {
+        Block neighbor = switch (face) {
+            case "top" -> getBlock(x, y + 1, z);
+            case "bottom" -> getBlock(x, y - 1, z);
+            case "north" -> getBlock(x, y, z - 1);
+            case "south" -> getBlock(x, y, z + 1);
+            case "west" -> getBlock(x - 1, y, z);
+            case "east" -> getBlock(x + 1, y, z);
+            default -> null;
+        };
+        return neighbor != null && (!neighbor.isAir());
+    }
+
+    default boolean canCullBlock(int x, int y, int z) {
+        Block topBlock = getBlock(x, y + 1, z);
+        Block bottomBlock = getBlock(x, y - 1, z);
+        Block frontBlock = getBlock(x, y , z + 1);
+        Block backBlock = getBlock(x, y , z - 1);
+        Block leftBlock = getBlock(x - 1, y, z);
+        Block rightBlock = getBlock(x + 1, y, z);
+
+        boolean result;
+
+        result = !topBlock.isAir() &&
+            !bottomBlock.isAir() &&
+            !frontBlock.isAir() &&
+            !backBlock.isAir() &&
+            !leftBlock.isAir() &&
+            !rightBlock.isAir();
+
+        // Check all six neighbors
+        return result;
+    }
+}
@@ -0,0 +1,74 @@
+package inferno.cube_game.common.levels.chunks;
+
+import inferno.cube_game.common.blocks.Block;
+import inferno.cube_game.common.registries.BlockRegistry;
+
+import java.util.List;
+
+/**
+ * Flat terrain: stone, then dirt, then one layer of grass at a fixed height, air above. Needs no noise,
+ * which makes it useful for tests and for benchmarking everything but terrain generation.
+ * @author inferno4you
+ */
+public class FlatChunkGenerator implements ChunkGenerator {
+    public static final int DEFAULT_SURFACE_HEIGHT = 64;
+    private static final int DIRT_DEPTH = 3; // Dirt layers below the grass
+
+    private final int surfaceHeight; // First air block above the grass
+
+    public FlatChunkGenerator() {
+        this(DEFAULT_SURFACE_HEIGHT);
+    }
+
+    /**
+     * @param surfaceHeight height of the first air block, the grass is right below it
+     */
+    public FlatChunkGenerator(int surfaceHeight) {
+        this.surfaceHeight = surfaceHeight;
+    }
+
+    @Override
+    public void generateStage(ProtoChunk protoChunk, GenerationStage stage, List<ProtoChunk> neighbours, GenerationContext context) {
+        if (stage != GenerationStage.SURFACE) return; // Nothing to sample, carve or decorate
+
+        Block uniformBlock = getKnownUniformBlock(protoChunk.getChunkX(), protoChunk.getChunkY(), protoChunk.getChunkZ());
+        if (uniformBlock != null) {
+            protoChunk.setChunk(new Chunk(protoChunk.getChunkX(), protoChunk.getChunkY(), protoChunk.getChunkZ(), uniformBlock));
+            return;
+        }
+
+        Chunk chunk = new Chunk(protoChunk.getChunkX(), protoChunk.getChunkY(), protoChunk.getChunkZ(), BlockRegistry.AIR_BLOCK);
+        int originY = protoChunk.getChunkY() * Chunk.CHUNK_SIZE;
+        for (int y = 0; y < Chunk.CHUNK_SIZE; y++) {
+            Block block = getLayerBlock(originY + y);
+            if (block.isAir()) continue;
+
+            for (int x = 0; x < Chunk.CHUNK_SIZE; x++) {
+                for (int z = 0; z < Chunk.CHUNK_SIZE; z++) {
+                    chunk.setBlock(x, y, z, block);
+                }
+            }
+        }
+        protoChunk.setChunk(chunk);
+    }
+
+    @Override
+    public Block getKnownUniformBlock(int chunkX, int chunkY, int chunkZ) {
+        int bottomY = chunkY * Chunk.CHUNK_SIZE;
+        int topY = bottomY + Chunk.CHUNK_SIZE - 1;
+        if (bottomY >= surfaceHeight) return BlockRegistry.AIR_BLOCK;
+        if (topY < surfaceHeight - 1 - DIRT_DEPTH) return BlockRegistry.STONE_BLOCK;
+        return null;
+    }
+
+    public int getSurfaceHeight() {
+        return surfaceHeight;
+    }
+
+    private Block getLayerBlock(int y) {
+        if (y >= surfaceHeight) return BlockRegistry.AIR_BLOCK;
+        if (y == surfaceHeight - 1) return BlockRegistry.GRASS_BLOCK;
+        if (y >= surfaceHeight - 1 - DIRT_DEPTH) return BlockRegistry.DIRT_BLOCK;
+        return BlockRegistry.STONE_BLOCK;
+    }
+}
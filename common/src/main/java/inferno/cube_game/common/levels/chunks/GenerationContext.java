@@ -0,0 +1,79 @@
+package inferno.cube_game.common.levels.chunks;
+
+/**
+ * Scratch buffers for one thread generating chunks, so generators reuse arrays instead of allocating them per chunk.
+ * Buffers are numbered slots chosen by the generator, their contents are undefined when handed out.
+ * Arrays a stage leaves on a proto chunk for a later stage can be recycled here once that stage is done with them,
+ * and the next request for an array of the same length takes them back, whichever thread they came from.
+ * Not thread safe, each thread uses its own context.
+ * @see ChunkGenerator
+ * @author inferno4you
+ */
+public final class GenerationContext {
+    public static final int BUFFER_SLOTS = 8; // Slots per buffer type
+
+    private final float[][] floatBuffers = new float[BUFFER_SLOTS][];
+    private final int[][] intBuffers = new int[BUFFER_SLOTS][];
+    private float[] spareFloats; // Last recycled float array
+    private long[] spareLongs; // Last recycled long array
+
+    /**
+     * Get a float buffer that stays valid until the same slot is requested again on this context
+     * @param slot buffer number, below BUFFER_SLOTS
+     * @param length minimum length
+     * @return Buffer of at least the length, with undefined contents
+     */
+    public float[] getFloatBuffer(int slot, int length) {
+        float[] buffer = floatBuffers[slot];
+        if (buffer == null || buffer.length < length) floatBuffers[slot] = buffer = new float[length];
+        return buffer;
+    }
+
+    /**
+     * Get an int buffer that stays valid until the same slot is requested again on this context
+     * @param slot buffer number, below BUFFER_SLOTS
+     * @param length minimum length
+     * @return Buffer of at least the length, with undefined contents
+     */
+    public int[] getIntBuffer(int slot, int length) {
+        int[] buffer = intBuffers[slot];
+        if (buffer == null || buffer.length < length) intBuffers[slot] = buffer = new int[length];
+        return buffer;
+    }
+
+    /**
+     * Take a float array to keep, e.g. on a proto chunk, reusing a recycled one when it has the right length
+     * @param length exact length
+     * @return Array with undefined contents
+     */
+    public float[] takeFloats(int length) {
+        float[] array = spareFloats;
+        if (array == null || array.length != length) return new float[length];
+        spareFloats = null;
+        return array;
+    }
+
+    /**
+     * Take a long array to keep, reusing a recycled one when it has the right length
+     * @param length exact length
+     * @return Array with undefined contents
+     */
+    public long[] takeLongs(int length) {
+        long[] array = spareLongs;
+        if (array == null || array.length != length) return new long[length];
+        spareLongs = null;
+        return array;
+    }
+
+    /**
+     * Hand back an array taken earlier, possibly on another context. Nothing may use it afterwards.
+     * @param array array to reuse
+     */
+    public void recycle(float[] array) {
+        spareFloats = array;
+    }
+
+    public void recycle(long[] array) {
+        spareLongs = array;
+    }
+}
@@ -0,0 +1,42 @@
+package inferno.cube_game.common.levels.chunks;
+
+/**
+ * Steps a chunk goes through while it is generated, in order. A chunk only advances to a stage once
+ * it and every neighbour within the stage's neighbour radius reached the previous stage.
+ * @see ChunkGenerator
+ * @author inferno4you
+ */
+public enum GenerationStage {
+    EMPTY(0), // Nothing generated yet
+    NOISE(0), // Terrain density and cave noise sampled
+    SURFACE(0), // Stone, dirt and grass placed
+    CARVERS(0), // Caves carved, tree positions chosen
+    DECORATION(1); // Trees placed, including those rooted in neighbouring chunks. Chunks are complete from here on
+
+    private static final GenerationStage[] STAGES = values(); // values() copies the array on every call
+
+    private final int neighbourRadius;
+
+    GenerationStage(int neighbourRadius) {
+        this.neighbourRadius = neighbourRadius;
+    }
+
+    /**
+     * Get how far away neighbours must have reached the previous stage before a chunk can enter this one
+     * @return Radius in chunks along every axis, 0 if the stage only depends on the chunk itself
+     */
+    public int getNeighbourRadius() {
+        return neighbourRadius;
+    }
+
+    /**
+     * @return The stage before this one, or EMPTY for EMPTY
+     */
+    public GenerationStage previous() {
+        return this == EMPTY ? EMPTY : STAGES[ordinal() - 1];
+    }
+
+    public boolean isAtLeast(GenerationStage stage) {
+        return ordinal() >= stage.ordinal();
+    }
+}
@@ -0,0 +1,256 @@
+package inferno.cube_game.common.levels.chunks;
+
+import inferno.cube_game.common.blocks.Block;
+import inferno.cube_game.common.levels.biomes.Biome;
+import inferno.cube_game.common.levels.biomes.BiomeSource;
+import inferno.cube_game.common.registries.BlockRegistry;
+import inferno.cube_game.extras.math.FractalNoise;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * The default generator: biome shaped height maps from fractal noise, 3D overhangs and caves, water up to sea level and trees.
+ * @see TerrainDensity
+ * @see BiomeSource
+ * @author inferno4you
+ */
+public class NoiseChunkGenerator implements ChunkGenerator {
+    public static final int SEA_LEVEL = 24; // Highest block filled with water where the terrain is lower
+    private static final int COLUMN_CACHE_SIZE = 4096; // Columns kept, a bit more than four times a 32x32 load area
+    private static final int BASE_HEIGHT = 64; // Height of the terrain where all noise layers are zero
+    private static final int COLUMN_AREA = Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE;
+
+    // Scratch buffer slots in the GenerationContext
+    private static final int HILLS_BUFFER = 0, MOUNTAINS_BUFFER = 1, DETAILS_BUFFER = 2, OCTAVE_BUFFER = 3;
+    private static final int HEIGHT_OFFSETS_BUFFER = 4, HEIGHT_SCALES_BUFFER = 5;
+
+    private final long seed;
+    private final FractalNoise hillNoise; // Broad rolling terrain
+    private final FractalNoise mountainNoise; // Ridged mountain ranges
+    private final FractalNoise detailNoise; // Small bumps
+    private final TerrainDensity terrainDensity; // Overhangs and caves on top of the height map
+    private final TreeDecorator treeDecorator;
+    private final BiomeSource biomeSource; // Climate and height parameters, cached per region
+    private final ChunkColumnCache columnCache = new ChunkColumnCache(COLUMN_CACHE_SIZE); // Heights shared by all chunks stacked in a column
+
+    public NoiseChunkGenerator(long seed) {
+        this.seed = seed;
+        this.terrainDensity = new TerrainDensity(seed);
+        this.treeDecorator = new TreeDecorator(seed);
+        this.biomeSource = new BiomeSource(seed);
+
+        // Every octave gets its own seed derived from the world seed, so heights only depend on the position
+        hillNoise = new FractalNoise.Builder()
+            .setSeed(FractalNoise.mixSeed(seed, 0))
+            .setFrequency(1.0 / 4096.0)
+            .setOctaves(3)
+            .setAmplitude(128f)
+            .build();
+        mountainNoise = new FractalNoise.Builder()
+            .setType(FractalNoise.Type.RIDGED)
+            .setSeed(FractalNoise.mixSeed(seed, 1))
+            .setFrequency(1.0 / 1024.0)
+            .setOctaves(3)
+            .setAmplitude(160f)
+            .build();
+        detailNoise = new FractalNoise.Builder()
+            .setSeed(FractalNoise.mixSeed(seed, 2))
+            .setFrequency(1.0 / 128.0)
+            .setOctaves(2)
+            .setAmplitude(4f)
+            .build();
+    }
+
+    /**
+     * Get the column of heights for a chunk column, computed once and shared by every chunkY in it
+     * @param chunkX column coordinate in x
+     * @param chunkZ column coordinate in z
+     * @return Cached column, its height map must not be modified
+     */
+    public ChunkColumn getColumn(int chunkX, int chunkZ) {
+        ChunkColumn column = columnCache.getIfPresent(chunkX, chunkZ);
+        return column != null ? column : getColumn(chunkX, chunkZ, new GenerationContext());
+    }
+
+    /**
+     * Get the column of heights, computing it with the scratch buffers of the calling thread on a miss
+     * @param chunkX column coordinate in x
+     * @param chunkZ column coordinate in z
+     * @param context scratch buffers of the calling thread
+     * @return Cached column, its height map must not be modified
+     */
+    public ChunkColumn getColumn(int chunkX, int chunkZ, GenerationContext context) {
+        return columnCache.get(chunkX, chunkZ, (columnX, columnZ) -> generateColumn(columnX, columnZ, context));
+    }
+
+    /**
+     * Get the column of heights only if it was already computed, so callers can avoid running noise
+     * @param chunkX column coordinate in x
+     * @param chunkZ column coordinate in z
+     * @return Cached column or null
+     */
+    public ChunkColumn getCachedColumn(int chunkX, int chunkZ) {
+        return columnCache.getIfPresent(chunkX, chunkZ);
+    }
+
+    /**
+     * Work out from the column height bounds whether a chunk is a single block throughout, without sampling noise
+     * @param column heights of the chunk's column
+     * @param chunkY the coordinate to chunk in y
+     * @return Air above anything the terrain can reach, stone below the soil and caves, otherwise null
+     */
+    public Block getUniformBlock(ChunkColumn column, int chunkY) {
+        return terrainDensity.getUniformBlock(column, chunkY);
+    }
+
+    @Override
+    public Block getKnownUniformBlock(int chunkX, int chunkY, int chunkZ) {
+        ChunkColumn column = getCachedColumn(chunkX, chunkZ);
+        return column == null ? null : terrainDensity.getUniformBlock(column, chunkY);
+    }
+
+    /**
+     * Get the biome of one block column
+     * @param x block coordinate in x
+     * @param z block coordinate in z
+     * @return Biome
+     */
+    public Biome getBiome(int x, int z) {
+        return biomeSource.getBiome(x, z);
+    }
+
+    private ChunkColumn generateColumn(int chunkX, int chunkZ, GenerationContext context) {
+        float[] heightOffsets = context.getFloatBuffer(HEIGHT_OFFSETS_BUFFER, COLUMN_AREA);
+        float[] heightScales = context.getFloatBuffer(HEIGHT_SCALES_BUFFER, COLUMN_AREA);
+        Biome[] biomes = new Biome[COLUMN_AREA]; // Kept by the column
+        biomeSource.sampleColumn(chunkX, chunkZ, heightOffsets, heightScales, biomes);
+        return new ChunkColumn(chunkX, chunkZ, generateHeightMap(chunkX, chunkZ, heightOffsets, heightScales, context), biomes);
+    }
+
+    /**
+     * Combine the noise layers into heights, shaped by the blended biome parameters
+     * @param heightOffsets height offsets indexed x * CHUNK_SIZE + z
+     * @param heightScales hill and mountain multipliers indexed x * CHUNK_SIZE + z
+     * @param context scratch buffers for the noise grids
+     * @return New height map, indexed x * CHUNK_SIZE + z
+     */
+    private int[] generateHeightMap(int chunkX, int chunkZ, float[] heightOffsets, float[] heightScales, GenerationContext context) {
+        int[] oneDimensionalHeightMap = new int[COLUMN_AREA]; // Kept by the column, so not a scratch buffer
+        float[] hills = context.getFloatBuffer(HILLS_BUFFER, COLUMN_AREA);
+        float[] mountains = context.getFloatBuffer(MOUNTAINS_BUFFER, COLUMN_AREA);
+        float[] details = context.getFloatBuffer(DETAILS_BUFFER, COLUMN_AREA);
+        float[] octaves = context.getFloatBuffer(OCTAVE_BUFFER, COLUMN_AREA);
+
+        // Grids are laid out row by row with rows along z, so each value is at [z * CHUNK_SIZE + x]
+        double originX = chunkX * Chunk.CHUNK_SIZE;
+        double originZ = chunkZ * Chunk.CHUNK_SIZE;
+        hillNoise.sampleGrid(originX, originZ, 1.0, Chunk.CHUNK_SIZE, Chunk.CHUNK_SIZE, hills, octaves);
+        mountainNoise.sampleGrid(originX, originZ, 1.0, Chunk.CHUNK_SIZE, Chunk.CHUNK_SIZE, mountains, octaves);
+        detailNoise.sampleGrid(originX, originZ, 1.0, Chunk.CHUNK_SIZE, Chunk.CHUNK_SIZE, details, octaves);
+
+        for (int index = 0; index < COLUMN_AREA; index++) {
+            int x = index / Chunk.CHUNK_SIZE;
+            int z = index % Chunk.CHUNK_SIZE;
+            int gridIndex = z * Chunk.CHUNK_SIZE + x;
+
+            float relief = (hills[gridIndex] + mountains[gridIndex]) * heightScales[index];
+            int height = (int) (relief - details[gridIndex] + heightOffsets[index] + BASE_HEIGHT);
+            setHeightAtCoordinate(x, z, height, oneDimensionalHeightMap);
+        }
+
+        return oneDimensionalHeightMap;
+    }
+
+    private void setHeightAtCoordinate(int x, int z, int height, int[] oneDimensionalHeightMap) {
+        if (x < 0 || x >= Chunk.CHUNK_SIZE || z < 0 || z >= Chunk.CHUNK_SIZE) {
+            return;
+        }
+        oneDimensionalHeightMap[x * Chunk.CHUNK_SIZE + z] = height;
+    }
+
+    @Override
+    public void generateStage(ProtoChunk protoChunk, GenerationStage stage, List<ProtoChunk> neighbours, GenerationContext context) {
+        switch (stage) {
+            case NOISE -> sampleNoise(protoChunk, context);
+            case SURFACE -> buildSurface(protoChunk, context);
+            case CARVERS -> carve(protoChunk, context);
+            case DECORATION -> decorate(protoChunk, neighbours);
+            case EMPTY -> { }
+        }
+    }
+
+    private void sampleNoise(ProtoChunk protoChunk, GenerationContext context) {
+        ChunkColumn column = getColumn(protoChunk.getChunkX(), protoChunk.getChunkZ(), context);
+        Block uniformBlock = terrainDensity.getUniformBlock(column, protoChunk.getChunkY()); // Checked first to skip taking arrays
+        if (uniformBlock != null) { // Later stages only create the chunk
+            protoChunk.setUniformBlock(uniformBlock);
+            return;
+        }
+
+        // Handed to the surface and carvers stages on the proto chunk, which recycle them into their own context
+        float[] density = context.takeFloats(Chunk.CHUNK_VOLUME);
+        long[] caveMask = context.takeLongs(Chunk.CHUNK_VOLUME / 64);
+        Arrays.fill(caveMask, 0L);
+
+        uniformBlock = terrainDensity.sampleNoise(column, protoChunk.getChunkX(), protoChunk.getChunkY(), protoChunk.getChunkZ(), density, caveMask);
+        if (uniformBlock != null) {
+            context.recycle(density);
+            context.recycle(caveMask);
+            protoChunk.setUniformBlock(uniformBlock);
+            return;
+        }
+        protoChunk.setDensity(density);
+        protoChunk.setCaveMask(caveMask);
+    }
+
+    private void buildSurface(ProtoChunk protoChunk, GenerationContext context) {
+        if (protoChunk.getUniformBlock() != null) {
+            protoChunk.setChunk(new Chunk(protoChunk.getChunkX(), protoChunk.getChunkY(), protoChunk.getChunkZ(), protoChunk.getUniformBlock()));
+            return;
+        }
+
+        Chunk chunk = new Chunk(protoChunk.getChunkX(), protoChunk.getChunkY(), protoChunk.getChunkZ(), BlockRegistry.AIR_BLOCK);
+        ChunkColumn column = getColumn(protoChunk.getChunkX(), protoChunk.getChunkZ(), context);
+        float[] density = protoChunk.getDensity();
+        int originY = protoChunk.getChunkY() * Chunk.CHUNK_SIZE;
+        for (int x = 0; x < Chunk.CHUNK_SIZE; x++) {
+            for (int z = 0; z < Chunk.CHUNK_SIZE; z++) {
+                Biome biome = column.getBiome(x, z);
+
+                for (int y = 0; y < Chunk.CHUNK_SIZE; y++) {
+                    Block block = TerrainDensity.getSurfaceBlock(density[x * Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE + y * Chunk.CHUNK_SIZE + z], originY + y, biome);
+                    if (block == null) continue;
+
+                    chunk.setBlock(x, y, z, block);
+                }
+            }
+        }
+        protoChunk.setChunk(chunk);
+        protoChunk.setDensity(null);
+        context.recycle(density);
+    }
+
+    private void carve(ProtoChunk protoChunk, GenerationContext context) {
+        Chunk chunk = protoChunk.getChunk();
+        long[] caveMask = protoChunk.getCaveMask();
+        if (caveMask != null) {
+            for (int word = 0; word < caveMask.length; word++) {
+                for (long bits = caveMask[word]; bits != 0; bits &= bits - 1) {
+                    int index = word * 64 + Long.numberOfTrailingZeros(bits);
+                    chunk.setBlock(index / (Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE), (index / Chunk.CHUNK_SIZE) % Chunk.CHUNK_SIZE, index % Chunk.CHUNK_SIZE, BlockRegistry.AIR_BLOCK);
+                }
+            }
+            protoChunk.setCaveMask(null);
+            context.recycle(caveMask);
+        }
+        protoChunk.setTreeRoots(treeDecorator.findTreeRoots(chunk, getColumn(protoChunk.getChunkX(), protoChunk.getChunkZ(), context)));
+    }
+
+    private void decorate(ProtoChunk protoChunk, List<ProtoChunk> neighbours) {
+        for (ProtoChunk neighbour : neighbours) {
+            if (neighbour.getTreeRoots().length == 0) continue;
+            treeDecorator.placeTrees(protoChunk.getChunk(), neighbour);
+        }
+    }
+}
@@ -0,0 +1,121 @@
+package inferno.cube_game.common.levels.chunks;
+
+import java.util.Arrays;
+
+/**
+ * Fixed length array of palette indices packed into longs with a variable number of bits per entry.
+ * Entries never span two longs, so widths that do not divide 64 (12 bits) leave a few unused bits per long.
+ * @see Chunk
+ * @author inferno4you
+ */
+public class PackedIndexStorage {
+    private static final int[] SUPPORTED_BITS = {1, 2, 4, 8, 12}; // Widths we pack with, picked by palette size
+
+    private final int size;
+    private final int bitsPerEntry;
+    private final int entriesPerLong;
+    private final long entryMask;
+    private final long[] data;
+
+    /**
+     * Create a new storage where every entry is zero
+     * @param size number of entries
+     * @param bitsPerEntry bits used per entry, one of 1, 2, 4, 8 or 12
+     */
+    public PackedIndexStorage(int size, int bitsPerEntry) {
+        this.size = size;
+        this.bitsPerEntry = bitsPerEntry;
+        this.entriesPerLong = 64 / bitsPerEntry;
+        this.entryMask = (1L << bitsPerEntry) - 1L;
+        this.data = new long[(size + entriesPerLong - 1) / entriesPerLong];
+    }
+
+    /**
+     * Get the smallest supported width that can address a palette of the given size
+     * @param paletteSize number of palette entries
+     * @return bits per entry
+     */
+    public static int bitsForPaletteSize(int paletteSize) {
+        for (int bits : SUPPORTED_BITS) {
+            if (paletteSize <= 1 << bits) return bits;
+        }
+        throw new IllegalArgumentException("Palette too large to pack: " + paletteSize);
+    }
+
+    public int get(int index) {
+        int longIndex = index / entriesPerLong;
+        int shift = (index - longIndex * entriesPerLong) * bitsPerEntry;
+        return (int) ((data[longIndex] >>> shift) & entryMask);
+    }
+
+    public void set(int index, int value) {
+        int longIndex = index / entriesPerLong;
+        int shift = (index - longIndex * entriesPerLong) * bitsPerEntry;
+        data[longIndex] = (data[longIndex] & ~(entryMask << shift)) | ((value & entryMask) << shift);
+    }
+
+    /**
+     * Set every entry to the same value, writing whole words at a time
+     * @param value value to fill with
+     */
+    public void fill(int value) {
+        long word = 0L;
+        for (int entry = 0; entry < entriesPerLong; entry++) {
+            word |= (value & entryMask) << (entry * bitsPerEntry);
+        }
+        Arrays.fill(data, word);
+    }
+
+    /**
+     * Unpack every entry into an array, decoding one word at a time
+     * @param destination array of at least getSize() entries
+     */
+    public void copyInto(short[] destination) {
+        int index = 0;
+        for (long word : data) {
+            for (int entry = 0; entry < entriesPerLong && index < size; entry++, index++) {
+                destination[index] = (short) (word & entryMask);
+                word >>>= bitsPerEntry;
+            }
+        }
+    }
+
+    /**
+     * Copy every entry into a new storage with a different width
+     * @param newBitsPerEntry bits used per entry by the new storage
+     * @return Repacked storage
+     */
+    public PackedIndexStorage repack(int newBitsPerEntry) {
+        PackedIndexStorage repacked = new PackedIndexStorage(size, newBitsPerEntry);
+        for (int index = 0; index < size; index++) {
+            repacked.set(index, get(index));
+        }
+        return repacked;
+    }
+
+    /**
+     * Create an independent copy with the same width
+     * @return Copied storage
+     */
+    public PackedIndexStorage copy() {
+        PackedIndexStorage copy = new PackedIndexStorage(size, bitsPerEntry);
+        System.arraycopy(data, 0, copy.data, 0, data.length);
+        return copy;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    public int getBitsPerEntry() {
+        return bitsPerEntry;
+    }
+
+    /**
+     * Get the backing words, mainly for serialization
+     * @return Raw packed data, not a copy
+     */
+    public long[] getData() {
+        return data;
+    }
+}
@@ -0,0 +1,129 @@
+package inferno.cube_game.common.levels.chunks;
+
+import inferno.cube_game.common.blocks.Block;
+
+/**
+ * A chunk while it moves through the generation stages, holding the data stages hand to each other.
+ * Stage work is done by a ChunkGenerator, which locks the proto chunk while advancing it.
+ * @see GenerationStage
+ * @author inferno4you
+ */
+public class ProtoChunk {
+    private static final int[] NO_TREE_ROOTS = new int[0];
+
+    private final int chunkX, chunkY, chunkZ;
+    private volatile GenerationStage stage = GenerationStage.EMPTY;
+    private Chunk chunk; // Set once the surface stage ran
+    private Block uniformBlock; // Set by the noise stage when the whole chunk is provably one block
+    private float[] density; // Terrain density from the noise stage, dropped after the surface stage
+    private long[] caveMask; // One bit per block to carve, from the noise stage, dropped after carving
+    private volatile int[] treeRoots = NO_TREE_ROOTS; // Block indices of grass blocks trees grow from, set when carving
+    private volatile boolean loaded; // Read from storage instead of generated
+
+    public ProtoChunk(int chunkX, int chunkY, int chunkZ) {
+        this.chunkX = chunkX;
+        this.chunkY = chunkY;
+        this.chunkZ = chunkZ;
+    }
+
+    public int getChunkX() {
+        return chunkX;
+    }
+
+    public int getChunkY() {
+        return chunkY;
+    }
+
+    public int getChunkZ() {
+        return chunkZ;
+    }
+
+    /**
+     * @return Last stage the chunk completed
+     */
+    public GenerationStage getStage() {
+        return stage;
+    }
+
+    /**
+     * Get the blocks generated so far
+     * @return Chunk, or null before the surface stage
+     */
+    public Chunk getChunk() {
+        return chunk;
+    }
+
+    /**
+     * Get the tree roots chosen by the carvers stage, read by neighbours while they are decorated
+     * @return Indices into the chunk's blocks, must not be modified
+     */
+    public int[] getTreeRoots() {
+        return treeRoots;
+    }
+
+    void setStage(GenerationStage stage) {
+        this.stage = stage;
+    }
+
+    /**
+     * Store the chunk's blocks, done by the surface stage
+     * @param chunk blocks of the chunk
+     */
+    public void setChunk(Chunk chunk) {
+        this.chunk = chunk;
+    }
+
+    /**
+     * Fill a proto chunk that did not start generating with a chunk read from storage, skipping every stage
+     * @param chunk stored blocks
+     * @param treeRoots stored tree roots, still read by neighbours that are generated
+     * @return false if generation started meanwhile, the stored chunk is not used then
+     */
+    public synchronized boolean setLoaded(Chunk chunk, int[] treeRoots) {
+        if (stage != GenerationStage.EMPTY) return false;
+        this.chunk = chunk;
+        this.treeRoots = treeRoots;
+        this.loaded = true;
+        this.stage = GenerationStage.DECORATION;
+        return true;
+    }
+
+    /**
+     * @return true if the chunk was read from storage by setLoaded rather than generated
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    Block getUniformBlock() {
+        return uniformBlock;
+    }
+
+    void setUniformBlock(Block uniformBlock) {
+        this.uniformBlock = uniformBlock;
+    }
+
+    float[] getDensity() {
+        return density;
+    }
+
+    void setDensity(float[] density) {
+        this.density = density;
+    }
+
+    long[] getCaveMask() {
+        return caveMask;
+    }
+
+    void setCaveMask(long[] caveMask) {
+        this.caveMask = caveMask;
+    }
+
+    /**
+     * Store the block indices trees grow from, read by neighbours during decoration
+     * @param treeRoots indices into the chunk's blocks, not modified afterwards
+     */
+    public void setTreeRoots(int[] treeRoots) {
+        this.treeRoots = treeRoots;
+    }
+}
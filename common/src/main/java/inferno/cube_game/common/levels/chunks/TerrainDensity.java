@@ -0,0 +1,230 @@
+package inferno.cube_game.common.levels.chunks;
+
+import inferno.cube_game.common.blocks.Block;
+import inferno.cube_game.common.levels.biomes.Biome;
+import inferno.cube_game.common.registries.BlockRegistry;
+import inferno.cube_game.extras.math.FractalNoise;
+import inferno.cube_game.extras.math.OpenSimplex2S;
+
+/**
+ * 3D terrain on top of the column height maps. Density is the height above the block plus overhang noise,
+ * with caves where two noise fields are both close to zero. Blocks with a density of zero or more are solid.
+ * 3D noise is only sampled on a coarse lattice of CELL_WIDTH x CELL_HEIGHT x CELL_WIDTH blocks aligned to world
+ * coordinates and trilinearly interpolated in between, so chunks agree along their borders.
+ * @see NoiseChunkGenerator
+ * @author inferno4you
+ */
+public class TerrainDensity {
+    public static final int CELL_WIDTH = 4; // Blocks between lattice samples in x and z
+    public static final int CELL_HEIGHT = 8; // Blocks between lattice samples in y
+    public static final float OVERHANG_AMPLITUDE = 12f; // Most the surface moves up or down through overhang noise
+    public static final int CAVE_MIN_Y = -256; // No caves are carved below this height
+    public static final int BEACH_HEIGHT = 2; // Soil is sand where the surface is at most this far above sea level
+
+    private static final int LATTICE_WIDTH = Chunk.CHUNK_SIZE / CELL_WIDTH + 1; // Samples along x and z, including the far border
+    private static final int LATTICE_HEIGHT = Chunk.CHUNK_SIZE / CELL_HEIGHT + 1; // Samples along y, including the far border
+    private static final int LATTICE_VOLUME = LATTICE_WIDTH * LATTICE_HEIGHT * LATTICE_WIDTH;
+    private static final double OVERHANG_FREQUENCY = 1.0 / 64.0;
+    private static final double CAVE_FREQUENCY = 1.0 / 48.0;
+    private static final float CAVE_RADIUS = 0.08f; // Caves where both cave noises are closer to zero than this, giving tunnels
+
+    private final long overhangSeed;
+    private final long caveSeedA, caveSeedB;
+
+    public TerrainDensity(long seed) {
+        this.overhangSeed = FractalNoise.mixSeed(seed, 16);
+        this.caveSeedA = FractalNoise.mixSeed(seed, 17);
+        this.caveSeedB = FractalNoise.mixSeed(seed, 18);
+    }
+
+    /**
+     * Work out from the column height bounds whether a chunk is a single block throughout, without sampling any noise
+     * @param column heights of the chunk's column
+     * @param chunkY the coordinate to chunk in y
+     * @return Air or water above anything overhangs can reach, stone below the soil and the caves, otherwise null
+     */
+    public Block getUniformBlock(ChunkColumn column, int chunkY) {
+        int bottomY = chunkY * Chunk.CHUNK_SIZE;
+        int topY = bottomY + Chunk.CHUNK_SIZE - 1;
+
+        if (bottomY > column.getMaxHeight() + OVERHANG_AMPLITUDE) {
+            if (bottomY > NoiseChunkGenerator.SEA_LEVEL) return BlockRegistry.AIR_BLOCK;
+            if (topY <= NoiseChunkGenerator.SEA_LEVEL) return BlockRegistry.WATER_BLOCK;
+            return null; // Crosses the sea surface
+        }
+        if (topY < CAVE_MIN_Y && isBelowSoil(column, topY)) return BlockRegistry.STONE_BLOCK;
+        return null;
+    }
+
+    /**
+     * Sample the noise a chunk's terrain is built from. Does nothing if the chunk is provably one block.
+     * @param column heights of the chunk's column
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @param density receives CHUNK_VOLUME terrain densities indexed like Chunk blocks, caves not included
+     * @param caveMask zeroed array of CHUNK_VOLUME / 64 longs, receives one set bit per solid block caves carve out
+     * @return Block filling the whole chunk, or null if the arrays were filled
+     */
+    public Block sampleNoise(ChunkColumn column, int chunkX, int chunkY, int chunkZ, float[] density, long[] caveMask) {
+        Block uniformBlock = getUniformBlock(column, chunkY);
+        if (uniformBlock != null) return uniformBlock;
+
+        Lattice lattice = sampleLattice(chunkX, chunkY, chunkZ);
+        int topY = chunkY * Chunk.CHUNK_SIZE + Chunk.CHUNK_SIZE - 1;
+        if (!lattice.hasCaves && isBelowSoil(column, topY)) return BlockRegistry.STONE_BLOCK; // Interpolation never leaves the range of the lattice samples
+
+        interpolateDensity(lattice, column, chunkY, density, caveMask);
+        return null;
+    }
+
+    /**
+     * Get the block for a terrain density, which is roughly the depth below the surface
+     * @param density density of the block
+     * @param y block coordinate in y
+     * @param biome biome of the block column
+     * @return Soil of the biome, sand near and below sea level, stone further down, water or null for air
+     */
+    public static Block getSurfaceBlock(float density, int y, Biome biome) {
+        if (density < 0f) return y <= NoiseChunkGenerator.SEA_LEVEL ? BlockRegistry.WATER_BLOCK : null;
+        if (density >= biome.getSoilDepth()) return BlockRegistry.STONE_BLOCK;
+        if (y + density <= NoiseChunkGenerator.SEA_LEVEL + BEACH_HEIGHT) return BlockRegistry.SAND_BLOCK; // Beaches and sea floor
+        return density < 1f ? biome.getSurfaceBlock() : biome.getSoilBlock();
+    }
+
+    /**
+     * Compute the density of every block of a chunk from the interpolated lattice, carved caves get -1
+     * @param column heights of the chunk's column
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @param density receives CHUNK_VOLUME values indexed like Chunk blocks
+     */
+    public void fillDensity(ChunkColumn column, int chunkX, int chunkY, int chunkZ, float[] density) {
+        long[] caveMask = new long[Chunk.CHUNK_VOLUME / 64];
+        interpolateDensity(sampleLattice(chunkX, chunkY, chunkZ), column, chunkY, density, caveMask);
+        for (int index = 0; index < Chunk.CHUNK_VOLUME; index++) {
+            if ((caveMask[index >>> 6] & (1L << index)) != 0) density[index] = -1f;
+        }
+    }
+
+    /**
+     * Sample the overhang noise at one block, not interpolated
+     * @return Offset added to the density
+     */
+    public float sampleOverhang(double x, double y, double z) {
+        return OpenSimplex2S.noise3_ImproveXZ(overhangSeed, x * OVERHANG_FREQUENCY, y * OVERHANG_FREQUENCY, z * OVERHANG_FREQUENCY) * OVERHANG_AMPLITUDE;
+    }
+
+    /**
+     * Check whether a block is carved out by caves, sampling the cave noise directly instead of interpolating
+     * @return true if the block is inside a cave
+     */
+    public boolean isCave(double x, double y, double z) {
+        if (y < CAVE_MIN_Y) return false;
+        return Math.abs(sampleCave(caveSeedA, x, y, z)) < CAVE_RADIUS && Math.abs(sampleCave(caveSeedB, x, y, z)) < CAVE_RADIUS;
+    }
+
+    private boolean isBelowSoil(ChunkColumn column, int topY) {
+        return topY <= column.getMinHeight() - OVERHANG_AMPLITUDE - Chunk.SOIL_DEPTH;
+    }
+
+    private static float sampleCave(long seed, double x, double y, double z) {
+        return OpenSimplex2S.noise3_ImproveXZ(seed, x * CAVE_FREQUENCY, y * CAVE_FREQUENCY, z * CAVE_FREQUENCY);
+    }
+
+    private Lattice sampleLattice(int chunkX, int chunkY, int chunkZ) {
+        Lattice lattice = new Lattice();
+        int originX = chunkX * Chunk.CHUNK_SIZE, originY = chunkY * Chunk.CHUNK_SIZE, originZ = chunkZ * Chunk.CHUNK_SIZE;
+        lattice.hasCaves = originY + Chunk.CHUNK_SIZE - 1 >= CAVE_MIN_Y;
+
+        for (int latticeX = 0; latticeX < LATTICE_WIDTH; latticeX++) {
+            for (int latticeY = 0; latticeY < LATTICE_HEIGHT; latticeY++) {
+                for (int latticeZ = 0; latticeZ < LATTICE_WIDTH; latticeZ++) {
+                    double x = originX + latticeX * CELL_WIDTH;
+                    double y = originY + latticeY * CELL_HEIGHT;
+                    double z = originZ + latticeZ * CELL_WIDTH;
+                    int index = latticeIndex(latticeX, latticeY, latticeZ);
+
+                    lattice.overhang[index] = sampleOverhang(x, y, z);
+                    if (!lattice.hasCaves) continue;
+                    lattice.caveA[index] = sampleCave(caveSeedA, x, y, z);
+                    lattice.caveB[index] = sampleCave(caveSeedB, x, y, z);
+                }
+            }
+        }
+
+        // A cave needs both noises near zero somewhere, impossible if either stays on one side of the band at every sample
+        if (lattice.hasCaves) lattice.hasCaves = mayReachZero(lattice.caveA) && mayReachZero(lattice.caveB);
+        return lattice;
+    }
+
+    private static boolean mayReachZero(float[] samples) {
+        float min = Float.MAX_VALUE, max = -Float.MAX_VALUE;
+        for (float sample : samples) {
+            min = Math.min(min, sample);
+            max = Math.max(max, sample);
+        }
+        return min < CAVE_RADIUS && max > -CAVE_RADIUS;
+    }
+
+    private static void interpolateDensity(Lattice lattice, ChunkColumn column, int chunkY, float[] density, long[] caveMask) {
+        int originY = chunkY * Chunk.CHUNK_SIZE;
+        for (int x = 0; x < Chunk.CHUNK_SIZE; x++) {
+            for (int z = 0; z < Chunk.CHUNK_SIZE; z++) {
+                int height = column.getHeight(x, z);
+
+                for (int y = 0; y < Chunk.CHUNK_SIZE; y++) {
+                    int index = x * Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE + y * Chunk.CHUNK_SIZE + z;
+                    int worldY = originY + y;
+                    float blockDensity = height - worldY + interpolate(lattice.overhang, x, y, z);
+
+                    if (blockDensity >= 0f && lattice.hasCaves && worldY >= CAVE_MIN_Y
+                        && Math.abs(interpolate(lattice.caveA, x, y, z)) < CAVE_RADIUS
+                        && Math.abs(interpolate(lattice.caveB, x, y, z)) < CAVE_RADIUS) {
+                        caveMask[index >>> 6] |= 1L << index; // Carved out later
+                    }
+                    density[index] = blockDensity;
+                }
+            }
+        }
+    }
+
+    /**
+     * Trilinearly interpolate lattice samples at a block inside the chunk
+     */
+    private static float interpolate(float[] samples, int x, int y, int z) {
+        int cellX = x / CELL_WIDTH, cellY = y / CELL_HEIGHT, cellZ = z / CELL_WIDTH;
+        float fractionX = (x - cellX * CELL_WIDTH) / (float) CELL_WIDTH;
+        float fractionY = (y - cellY * CELL_HEIGHT) / (float) CELL_HEIGHT;
+        float fractionZ = (z - cellZ * CELL_WIDTH) / (float) CELL_WIDTH;
+
+        int index = latticeIndex(cellX, cellY, cellZ);
+        int stepX = LATTICE_HEIGHT * LATTICE_WIDTH, stepY = LATTICE_WIDTH;
+
+        float bottomNear = lerp(samples[index], samples[index + 1], fractionZ);
+        float topNear = lerp(samples[index + stepY], samples[index + stepY + 1], fractionZ);
+        float bottomFar = lerp(samples[index + stepX], samples[index + stepX + 1], fractionZ);
+        float topFar = lerp(samples[index + stepX + stepY], samples[index + stepX + stepY + 1], fractionZ);
+
+        return lerp(lerp(bottomNear, topNear, fractionY), lerp(bottomFar, topFar, fractionY), fractionX);
+    }
+
+    private static float lerp(float from, float to, float fraction) {
+        return from + (to - from) * fraction;
+    }
+
+    private static int latticeIndex(int latticeX, int latticeY, int latticeZ) {
+        return (latticeX * LATTICE_HEIGHT + latticeY) * LATTICE_WIDTH + latticeZ;
+    }
+
+    /**
+     * Noise samples at the lattice points of one chunk
+     */
+    private static final class Lattice {
+        private final float[] overhang = new float[LATTICE_VOLUME];
+        private final float[] caveA = new float[LATTICE_VOLUME];
+        private final float[] caveB = new float[LATTICE_VOLUME];
+        private boolean hasCaves; // False once the samples prove no block of the chunk is carved
+    }
+}
@@ -0,0 +1,114 @@
+package inferno.cube_game.common.levels.chunks;
+
+import inferno.cube_game.common.blocks.Block;
+import inferno.cube_game.common.registries.BlockRegistry;
+import inferno.cube_game.extras.math.FractalNoise;
+
+/**
+ * Places trees. Roots are chosen per chunk once it is carved, from a hash of the world seed and position.
+ * A chunk being decorated then pulls the part of every tree rooted in it or a neighbour that falls inside it,
+ * so trees cross chunk borders without any chunk writing into another.
+ * @see GenerationStage#DECORATION
+ * @author inferno4you
+ */
+public class TreeDecorator {
+    public static final int MAX_TREE_HEIGHT = 8; // Trunk plus leaves above the root, must stay below CHUNK_SIZE
+    public static final int LEAF_RADIUS = 2; // Leaves reach this far from the trunk, must stay below CHUNK_SIZE
+
+    private static final int MIN_TRUNK_HEIGHT = 4;
+    private static final int TRUNK_HEIGHT_RANGE = 3; // Trunks are 4 to 6 blocks
+
+    private final long treeSeed;
+
+    public TreeDecorator(long seed) {
+        this.treeSeed = FractalNoise.mixSeed(seed, 32);
+    }
+
+    /**
+     * Pick where trees grow in a carved chunk: on grass with air above, in columns chosen by the seed and
+     * as often as the column's biome allows. Only blocks inside the chunk are looked at, so the result never depends on neighbours.
+     * @param chunk carved chunk
+     * @param column heights and biomes of the chunk's column
+     * @return Block indices of the roots
+     */
+    public int[] findTreeRoots(Chunk chunk, ChunkColumn column) {
+        if (chunk.isUniform()) return new int[0]; // All air or all stone, nothing to grow on
+
+        int[] roots = new int[Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE];
+        int rootCount = 0;
+        for (int x = 0; x < Chunk.CHUNK_SIZE; x++) {
+            for (int z = 0; z < Chunk.CHUNK_SIZE; z++) {
+                int worldX = chunk.getChunkX() * Chunk.CHUNK_SIZE + x;
+                int worldZ = chunk.getChunkZ() * Chunk.CHUNK_SIZE + z;
+                int treeChance = column.getBiome(x, z).getTreeChance();
+                if (treeChance == 0 || Long.remainderUnsigned(hash(worldX, worldZ), treeChance) != 0) continue;
+
+                for (int y = Chunk.CHUNK_SIZE - 2; y >= 0; y--) { // The top layer is skipped, the block above it is in another chunk
+                    if (chunk.getBlock(x, y, z) != BlockRegistry.GRASS_BLOCK || !chunk.getBlock(x, y + 1, z).isAir()) continue;
+
+                    roots[rootCount++] = x * Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE + y * Chunk.CHUNK_SIZE + z;
+                    break;
+                }
+            }
+        }
+
+        int[] trimmed = new int[rootCount];
+        System.arraycopy(roots, 0, trimmed, 0, rootCount);
+        return trimmed;
+    }
+
+    /**
+     * Place the blocks of trees rooted in a source chunk that fall inside a target chunk.
+     * Leaves only replace air, trunks replace air and leaves.
+     * @param target chunk being decorated
+     * @param source chunk the trees are rooted in, the target itself or one of its neighbours
+     */
+    public void placeTrees(Chunk target, ProtoChunk source) {
+        int offsetX = (source.getChunkX() - target.getChunkX()) * Chunk.CHUNK_SIZE;
+        int offsetY = (source.getChunkY() - target.getChunkY()) * Chunk.CHUNK_SIZE;
+        int offsetZ = (source.getChunkZ() - target.getChunkZ()) * Chunk.CHUNK_SIZE;
+
+        for (int root : source.getTreeRoots()) {
+            int localX = root / (Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE);
+            int localY = (root / Chunk.CHUNK_SIZE) % Chunk.CHUNK_SIZE;
+            int localZ = root % Chunk.CHUNK_SIZE;
+
+            long treeHash = hash(source.getChunkX() * Chunk.CHUNK_SIZE + localX, source.getChunkZ() * Chunk.CHUNK_SIZE + localZ);
+            int trunkHeight = MIN_TRUNK_HEIGHT + (int) Long.remainderUnsigned(treeHash >>> 16, TRUNK_HEIGHT_RANGE);
+
+            // Root position relative to the target chunk
+            int rootX = localX + offsetX, rootY = localY + offsetY, rootZ = localZ + offsetZ;
+
+            placeLeaves(target, rootX, rootY, rootZ, trunkHeight);
+            for (int height = 1; height <= trunkHeight; height++) {
+                placeTreeBlock(target, rootX, rootY + height, rootZ, BlockRegistry.LOG_BLOCK);
+            }
+        }
+    }
+
+    private void placeLeaves(Chunk target, int rootX, int rootY, int rootZ, int trunkHeight) {
+        for (int height = trunkHeight - 2; height <= trunkHeight + 1; height++) {
+            int radius = height < trunkHeight ? LEAF_RADIUS : LEAF_RADIUS - 1; // Narrower crown at the top
+
+            for (int leafX = -radius; leafX <= radius; leafX++) {
+                for (int leafZ = -radius; leafZ <= radius; leafZ++) {
+                    if (Math.abs(leafX) == radius && Math.abs(leafZ) == radius && radius > 1) continue; // Round off the corners
+                    placeTreeBlock(target, rootX + leafX, rootY + height, rootZ + leafZ, BlockRegistry.LEAVES_BLOCK);
+                }
+            }
+        }
+    }
+
+    private static void placeTreeBlock(Chunk target, int x, int y, int z, Block block) {
+        if (x < 0 || x >= Chunk.CHUNK_SIZE || y < 0 || y >= Chunk.CHUNK_SIZE || z < 0 || z >= Chunk.CHUNK_SIZE) return; // Another chunk places it
+
+        Block current = target.getBlock(x, y, z);
+        if (current.isAir() || (block == BlockRegistry.LOG_BLOCK && current == BlockRegistry.LEAVES_BLOCK)) {
+            target.setBlock(x, y, z, block);
+        }
+    }
+
+    private long hash(int worldX, int worldZ) {
+        return FractalNoise.mixSeed(treeSeed, ((long) worldX << 32) ^ (worldZ & 0xFFFFFFFFL));
+    }
+}
@@ -0,0 +1,23 @@
+package inferno.cube_game.common.levels.chunks;
+
+import inferno.cube_game.common.blocks.Block;
+import inferno.cube_game.common.registries.BlockRegistry;
+
+import java.util.List;
+
+/**
+ * Generates nothing but air, for worlds that are built by hand or loaded from disk
+ * @author inferno4you
+ */
+public class VoidChunkGenerator implements ChunkGenerator {
+    @Override
+    public void generateStage(ProtoChunk protoChunk, GenerationStage stage, List<ProtoChunk> neighbours, GenerationContext context) {
+        if (stage != GenerationStage.SURFACE) return;
+        protoChunk.setChunk(new Chunk(protoChunk.getChunkX(), protoChunk.getChunkY(), protoChunk.getChunkZ(), BlockRegistry.AIR_BLOCK));
+    }
+
+    @Override
+    public Block getKnownUniformBlock(int chunkX, int chunkY, int chunkZ) {
+        return BlockRegistry.AIR_BLOCK;
+    }
+}
@@ -0,0 +1,159 @@
+package inferno.cube_game.common.levels.storage;
+
+import inferno.cube_game.common.blocks.Block;
+import inferno.cube_game.common.registries.BlockRegistry;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+/**
+ * Numeric block ids of one save, so stored chunks reference blocks by a small number instead of their registry name.
+ * Ids are handed out in the order blocks are first saved and never change. The file lists one registry name per line,
+ * the line number being the id, and a new id is synced to it before any chunk or journal record using it can be written.
+ * reserveId hands out ids without touching the disk, for callers that must not wait for a sync; syncNames writes them.
+ * @see ChunkCodec
+ * @author inferno4you
+ */
+public class BlockIdMap {
+    private final Path path; // Null to keep the ids in memory only
+    private final List<String> names = new ArrayList<>();
+    private final HashMap<String, Integer> idsByName = new HashMap<>();
+    private final IdentityHashMap<Block, Integer> idsByBlock = new IdentityHashMap<>(); // Skips building the name for blocks seen before
+    private Block[] blocksById = new Block[0]; // Resolved through BlockRegistry, air for names no longer registered
+    private final Object fileLock = new Object(); // Held while appending, so names reach the file in id order without blocking lookups
+    private int syncedNames; // Names on the disk, the rest are only reserved. Guarded by this
+
+    /**
+     * Create a map that is not saved anywhere
+     */
+    public BlockIdMap() {
+        this.path = null;
+    }
+
+    /**
+     * Open the id file of a save, starting empty if it does not exist yet
+     * @param path id file, created when the first id is handed out
+     * @throws IOException if the file exists but can not be read
+     */
+    public BlockIdMap(Path path) throws IOException {
+        this.path = path;
+        if (!Files.exists(path)) return;
+
+        for (String line : Files.readAllLines(path, StandardCharsets.UTF_8)) {
+            if (!line.isEmpty()) addName(line);
+        }
+        syncedNames = names.size();
+    }
+
+    /**
+     * Get the id of a block, handing out the next one if the block was never saved before
+     * @param block block to look up
+     * @return Id, stable for the whole save
+     * @throws IOException if a new id can not be written to the file
+     */
+    public int getId(Block block) throws IOException {
+        int id = reserveId(block);
+        if (!isSynced(id)) syncNames();
+        return id;
+    }
+
+    /**
+     * Get the id of a block without waiting for the disk. A new id is only kept in memory until the next syncNames,
+     * which has to finish before anything using the id is written.
+     * @param block block to look up
+     * @return Id, stable for the whole save once synced
+     */
+    public synchronized int reserveId(Block block) {
+        Integer id = idsByBlock.get(block);
+        if (id != null) return id;
+
+        String name = block.getDomain() + ":" + block.getRegistryName();
+        id = idsByName.get(name);
+        if (id == null) id = addName(name);
+        idsByBlock.put(block, id);
+        return id;
+    }
+
+    /**
+     * Write and sync every id handed out by reserveId so far
+     * @throws IOException if the file can not be written, the ids stay reserved and the next call tries again
+     */
+    public void syncNames() throws IOException {
+        synchronized (fileLock) {
+            List<String> pending;
+            synchronized (this) {
+                if (path == null) syncedNames = names.size();
+                if (syncedNames == names.size()) return;
+                pending = new ArrayList<>(names.subList(syncedNames, names.size()));
+            }
+            append(pending);
+            synchronized (this) {
+                syncedNames += pending.size();
+            }
+        }
+    }
+
+    private synchronized boolean isSynced(int id) {
+        return id < syncedNames;
+    }
+
+    /**
+     * Get the block of an id
+     * @param id id read from a stored chunk
+     * @return Block, air if it is no longer registered
+     * @throws IOException if the id was never handed out
+     */
+    public synchronized Block getBlock(int id) throws IOException {
+        if (id < 0 || id >= names.size()) throw new IOException("Unknown block id " + id);
+
+        Block block = blocksById[id];
+        if (block == null) { // Resolved on first use, the registry may not be filled when the map is opened
+            block = BlockRegistry.getBlock(names.get(id));
+            blocksById[id] = block = block == null ? BlockRegistry.AIR_BLOCK : block;
+        }
+        return block;
+    }
+
+    public synchronized int size() {
+        return names.size();
+    }
+
+    private int addName(String name) {
+        int id = names.size();
+        names.add(name);
+        idsByName.put(name, id);
+        if (blocksById.length <= id) blocksById = Arrays.copyOf(blocksById, Math.max(16, blocksById.length * 2));
+        return id;
+    }
+
+    private void append(List<String> pending) throws IOException {
+        StringBuilder text = new StringBuilder();
+        for (String name : pending) {
+            text.append(name).append('\n');
+        }
+        Files.createDirectories(path.toAbsolutePath().getParent());
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            ByteBuffer lines = ByteBuffer.wrap(text.toString().getBytes(StandardCharsets.UTF_8));
+            long size = channel.size();
+            try {
+                while (lines.hasRemaining()) {
+                    channel.write(lines);
+                }
+                channel.force(true); // Chunks written later point at the ids, they have to be on the disk first
+            } catch (IOException e) {
+                channel.truncate(size); // A retry appends the same names again, half of them left here would shift every later id
+                throw e;
+            }
+        }
+    }
+}
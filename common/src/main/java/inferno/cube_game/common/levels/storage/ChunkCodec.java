@@ -0,0 +1,186 @@
+package inferno.cube_game.common.levels.storage;
+
+import inferno.cube_game.common.blocks.Block;
+import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.common.levels.chunks.ChunkView;
+import inferno.cube_game.common.levels.chunks.PackedIndexStorage;
+import inferno.cube_game.common.registries.BlockRegistry;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Binary format of a single chunk. Layout, all numbers big endian:
+ * <pre>
+ * byte    format version the chunk was written with
+ * byte    oldest format version that can read it
+ * byte    flags, UNIFORM and NUMERIC_IDS
+ * UNIFORM:     block
+ * otherwise:   varint palette size, palette size blocks, byte bits per index, packed indices as longs
+ * varint  tree root count, tree roots as unsigned shorts
+ * </pre>
+ * A block is a varint id from a BlockIdMap with NUMERIC_IDS, its registry name otherwise. Indices are packed like
+ * PackedIndexStorage at the smallest width that fits the palette. Later versions only append fields and raise the
+ * oldest readable version when they change what is there, so older builds keep reading newer chunks.
+ * @see RegionStorage
+ * @author inferno4you
+ */
+public final class ChunkCodec {
+    public static final int FORMAT_VERSION = 1;
+    private static final int OLDEST_READABLE_VERSION = 1; // Written with every chunk, raise when old readers would misread it
+    private static final int FLAG_UNIFORM = 1; // One block fills the chunk, no palette or indices follow
+    private static final int FLAG_NUMERIC_IDS = 2; // Blocks are ids from the BlockIdMap instead of names
+
+    private final BlockIdMap blockIds; // Null to write registry names
+
+    /**
+     * Create a codec writing blocks by registry name, so each chunk can be read on its own
+     */
+    public ChunkCodec() {
+        this(null);
+    }
+
+    /**
+     * Create a codec writing blocks as ids
+     * @param blockIds ids of the save the chunks belong to, null to write registry names
+     */
+    public ChunkCodec(BlockIdMap blockIds) {
+        this.blockIds = blockIds;
+    }
+
+    /**
+     * Write a chunk
+     * @param chunk blocks to write, a snapshot if the chunk may change meanwhile
+     * @param treeRoots block indices trees grow from, below CHUNK_VOLUME
+     * @param output destination
+     * @throws IOException if writing fails
+     */
+    public void encode(ChunkView chunk, int[] treeRoots, DataOutput output) throws IOException {
+        output.writeByte(FORMAT_VERSION);
+        output.writeByte(OLDEST_READABLE_VERSION);
+        int flags = blockIds != null ? FLAG_NUMERIC_IDS : 0;
+
+        if (chunk.isUniform()) { // Most chunks are only air or stone, a handful of bytes each
+            output.writeByte(flags | FLAG_UNIFORM);
+            writeBlock(output, chunk.getPaletteBlock(0));
+        } else {
+            output.writeByte(flags);
+            Block[] palette = chunk.getPalette();
+            writeVarInt(output, palette.length);
+            for (Block block : palette) {
+                writeBlock(output, block);
+            }
+
+            short[] indices = new short[Chunk.CHUNK_VOLUME];
+            chunk.copyInto(indices);
+            int bitsPerEntry = PackedIndexStorage.bitsForPaletteSize(palette.length);
+            int entriesPerLong = 64 / bitsPerEntry;
+            output.writeByte(bitsPerEntry);
+            for (int start = 0; start < Chunk.CHUNK_VOLUME; start += entriesPerLong) {
+                long word = 0L;
+                int end = Math.min(start + entriesPerLong, Chunk.CHUNK_VOLUME);
+                for (int index = end - 1; index >= start; index--) {
+                    word = word << bitsPerEntry | indices[index];
+                }
+                output.writeLong(word);
+            }
+        }
+
+        writeVarInt(output, treeRoots.length);
+        for (int treeRoot : treeRoots) {
+            output.writeShort(treeRoot);
+        }
+    }
+
+    /**
+     * Read a chunk written by encode, with this or another format version
+     * @param input source, positioned at the start of the chunk
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @return Chunk and its tree roots. Blocks that are no longer registered become air
+     * @throws IOException if reading fails, the data is damaged or it needs a newer format version
+     */
+    public StoredChunk decode(DataInput input, int chunkX, int chunkY, int chunkZ) throws IOException {
+        input.readUnsignedByte(); // Version it was written with, fields added after ours are ignored
+        int oldestReadableVersion = input.readUnsignedByte();
+        if (oldestReadableVersion > FORMAT_VERSION) {
+            throw new IOException("Chunk " + chunkX + "," + chunkY + "," + chunkZ + " needs chunk format " + oldestReadableVersion + ", this build reads " + FORMAT_VERSION);
+        }
+        int flags = input.readUnsignedByte();
+        boolean numericIds = (flags & FLAG_NUMERIC_IDS) != 0;
+
+        Chunk chunk;
+        if ((flags & FLAG_UNIFORM) != 0) {
+            chunk = new Chunk(chunkX, chunkY, chunkZ, readBlock(input, numericIds));
+        } else {
+            int paletteSize = readVarInt(input);
+            if (paletteSize < 2 || paletteSize > Chunk.CHUNK_VOLUME) throw new IOException("Chunk " + chunkX + "," + chunkY + "," + chunkZ + " has " + paletteSize + " palette entries");
+            Block[] palette = new Block[paletteSize];
+            for (int index = 0; index < paletteSize; index++) {
+                palette[index] = readBlock(input, numericIds);
+            }
+
+            int bitsPerEntry = input.readUnsignedByte();
+            if (bitsPerEntry != PackedIndexStorage.bitsForPaletteSize(paletteSize)) {
+                throw new IOException("Chunk " + chunkX + "," + chunkY + "," + chunkZ + " packs " + paletteSize + " palette entries into " + bitsPerEntry + " bits");
+            }
+            int entriesPerLong = 64 / bitsPerEntry;
+            long entryMask = (1L << bitsPerEntry) - 1L;
+            short[] indices = new short[Chunk.CHUNK_VOLUME];
+            for (int start = 0; start < Chunk.CHUNK_VOLUME; start += entriesPerLong) {
+                long word = input.readLong();
+                int end = Math.min(start + entriesPerLong, Chunk.CHUNK_VOLUME);
+                for (int index = start; index < end; index++, word >>>= bitsPerEntry) {
+                    int paletteIndex = (int) (word & entryMask);
+                    if (paletteIndex >= paletteSize) throw new IOException("Chunk " + chunkX + "," + chunkY + "," + chunkZ + " points past its palette");
+                    indices[index] = (short) paletteIndex;
+                }
+            }
+            chunk = new Chunk(chunkX, chunkY, chunkZ, palette, indices);
+        }
+
+        int[] treeRoots = new int[readVarInt(input)];
+        for (int index = 0; index < treeRoots.length; index++) {
+            treeRoots[index] = input.readUnsignedShort();
+            if (treeRoots[index] >= Chunk.CHUNK_VOLUME) throw new IOException("Chunk " + chunkX + "," + chunkY + "," + chunkZ + " has a tree outside of it");
+        }
+        return new StoredChunk(chunk, treeRoots);
+    }
+
+    private void writeBlock(DataOutput output, Block block) throws IOException {
+        if (blockIds != null) writeVarInt(output, blockIds.getId(block));
+        else output.writeUTF(block.getDomain() + ":" + block.getRegistryName());
+    }
+
+    private Block readBlock(DataInput input, boolean numericId) throws IOException {
+        if (numericId) {
+            if (blockIds == null) throw new IOException("Chunk uses block ids but the codec has no id map");
+            return blockIds.getBlock(readVarInt(input));
+        }
+        Block block = BlockRegistry.getBlock(input.readUTF());
+        return block == null ? BlockRegistry.AIR_BLOCK : block; // Blocks no longer registered are dropped
+    }
+
+    /**
+     * Write a non negative int in as few bytes as it needs, 7 bits per byte with the top bit set while more follow
+     */
+    private static void writeVarInt(DataOutput output, int value) throws IOException {
+        while ((value & ~0x7F) != 0) {
+            output.writeByte((value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        output.writeByte(value);
+    }
+
+    private static int readVarInt(DataInput input) throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 32; shift += 7) {
+            int part = input.readUnsignedByte();
+            value |= (part & 0x7F) << shift;
+            if ((part & 0x80) == 0) return value;
+        }
+        throw new IOException("Variable length number is too long");
+    }
+}
@@ -0,0 +1,331 @@
+package inferno.cube_game.common.levels.storage;
+
+import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.common.levels.chunks.ChunkKey;
+import inferno.cube_game.common.levels.chunks.ChunkSnapshot;
+import inferno.cube_game.common.platform.Platform;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Writes chunks to a RegionStorage on a background thread, so saving never blocks the thread that asks for it.
+ * Chunks wait in a bounded queue keyed by chunk, so saving a chunk again before it was written only keeps the latest
+ * request. The writer takes everything queued at once, writes it grouped by region file and syncs each file once per
+ * batch. A snapshot is taken when the chunk is written, not when it is queued, so edits made while it waits are saved too.
+ * Chunks stay visible through load until they are written, so one evicted and requested again is never read stale.
+ * With an EditJournal, written chunks are reported to it so it can drop the edits they hold.
+ * @see RegionStorage
+ * @author inferno4you
+ */
+public class ChunkSaveService implements AutoCloseable {
+    public static final int DEFAULT_CAPACITY = 1024; // Chunks waiting to be written, they stay in memory until then
+    private static final String LOG_TAG = "ChunkSaver";
+
+    private final RegionStorage storage;
+    private final EditJournal journal; // Null when edits are not journaled
+    private final int capacity;
+    private final LinkedHashMap<Long, PendingSave> pending = new LinkedHashMap<>(); // Insertion order, so chunks are written oldest first
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition saveAvailable = lock.newCondition();
+    private final Condition spaceAvailable = lock.newCondition(); // Signalled when the writer finished a batch
+    private final Thread writer;
+    private boolean running = true; // Guarded by lock
+    private long savedChunks; // Guarded by lock
+    private long failedSaves;
+
+    /**
+     * Create a save service and start its writer thread
+     * @param storage storage chunks are written to
+     * @param capacity most chunks waiting to be written at once
+     */
+    public ChunkSaveService(RegionStorage storage, int capacity) {
+        this(storage, capacity, null);
+    }
+
+    /**
+     * Create a save service that checkpoints a journal, and start its writer thread
+     * @param storage storage chunks are written to
+     * @param capacity most chunks waiting to be written at once
+     * @param journal journal told about every written chunk, closed with the service. Null to journal nothing
+     */
+    public ChunkSaveService(RegionStorage storage, int capacity, EditJournal journal) {
+        this.storage = storage;
+        this.capacity = capacity;
+        this.journal = journal;
+        writer = new Thread(this::runWriter, "ChunkSaver");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    public RegionStorage getStorage() {
+        return storage;
+    }
+
+    /**
+     * @return Journal checkpointed by this service, or null if edits are not journaled
+     */
+    public EditJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Queue a chunk to be written if there is room, without blocking. A chunk already waiting always has room.
+     * @param chunk chunk to save
+     * @param treeRoots block indices trees grow from, stored with the chunk
+     * @return false if the queue is full, the caller should keep the chunk and try again later
+     */
+    public boolean trySubmit(Chunk chunk, int[] treeRoots) {
+        long key = ChunkKey.pack(chunk.getChunkX(), chunk.getChunkY(), chunk.getChunkZ());
+        lock.lock();
+        try {
+            if (!running) throw new IllegalStateException("Chunk save service is closed");
+            if (!pending.containsKey(key) && pending.size() >= capacity) return false;
+
+            pending.put(key, new PendingSave(key, chunk, treeRoots)); // Replaces an older request, also one being written right now
+            saveAvailable.signal();
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Queue a chunk to be written, waiting for room while the queue is full. Not for threads that must not stall.
+     * @param chunk chunk to save
+     * @param treeRoots block indices trees grow from, stored with the chunk
+     * @throws InterruptedException if interrupted while waiting for room
+     */
+    public void submit(Chunk chunk, int[] treeRoots) throws InterruptedException {
+        lock.lock();
+        try {
+            while (!trySubmit(chunk, treeRoots)) {
+                spaceAvailable.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Get a chunk that is queued or being written, which is newer than what the storage holds
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @return Waiting chunk with its tree roots, or null if none is waiting
+     */
+    public StoredChunk getPending(int chunkX, int chunkY, int chunkZ) {
+        lock.lock();
+        try {
+            PendingSave save = pending.get(ChunkKey.pack(chunkX, chunkY, chunkZ));
+            return save == null ? null : new StoredChunk(save.chunk, save.treeRoots);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Read a chunk, preferring one still waiting to be written over the stored one
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @return Chunk, or null if it was never saved
+     * @throws IOException if reading the storage fails
+     */
+    public StoredChunk load(int chunkX, int chunkY, int chunkZ) throws IOException {
+        StoredChunk waiting = getPending(chunkX, chunkY, chunkZ);
+        return waiting != null ? waiting : storage.load(chunkX, chunkY, chunkZ);
+    }
+
+    /**
+     * Check whether a chunk is certainly neither waiting nor stored, without touching the disk
+     * @see RegionStorage#isKnownAbsent(int, int, int)
+     */
+    public boolean isKnownAbsent(int chunkX, int chunkY, int chunkZ) {
+        lock.lock();
+        try {
+            if (pending.containsKey(ChunkKey.pack(chunkX, chunkY, chunkZ))) return false;
+        } finally {
+            lock.unlock();
+        }
+        return storage.isKnownAbsent(chunkX, chunkY, chunkZ);
+    }
+
+    public int getPendingCount() {
+        lock.lock();
+        try {
+            return pending.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * @return Chunks written since the service started
+     */
+    public long getSavedCount() {
+        lock.lock();
+        try {
+            return savedChunks;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Chunks that could not be written, they stay dirty so a later save tries again
+     */
+    public long getFailedCount() {
+        lock.lock();
+        try {
+            return failedSaves;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runWriter() {
+        while (true) {
+            List<PendingSave> batch;
+            lock.lock();
+            try {
+                while (pending.isEmpty() && running) {
+                    saveAvailable.awaitUninterruptibly();
+                }
+                if (pending.isEmpty()) return; // Closed and drained
+                batch = new ArrayList<>(pending.values()); // Left in pending until written, so loads still find them
+            } finally {
+                lock.unlock();
+            }
+
+            int failures = writeBatch(batch);
+
+            lock.lock();
+            try {
+                for (PendingSave save : batch) {
+                    pending.remove(save.key, save); // Kept if it was submitted again meanwhile
+                }
+                savedChunks += batch.size() - failures;
+                failedSaves += failures;
+                spaceAvailable.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Write a batch grouped by region file, syncing each file once after its chunks
+     * @return Number of chunks that failed to save
+     */
+    private int writeBatch(List<PendingSave> batch) {
+        LinkedHashMap<Long, List<PendingSave>> regions = new LinkedHashMap<>();
+        for (PendingSave save : batch) {
+            long regionKey = RegionStorage.getRegionKey(save.chunk.getChunkX(), save.chunk.getChunkY(), save.chunk.getChunkZ());
+            regions.computeIfAbsent(regionKey, key -> new ArrayList<>()).add(save);
+        }
+
+        int failures = 0;
+        for (Map.Entry<Long, List<PendingSave>> region : regions.entrySet()) {
+            List<PendingSave> saves = region.getValue();
+            long[] versions = new long[saves.size()];
+            boolean[] written = new boolean[saves.size()];
+            for (int index = 0; index < saves.size(); index++) {
+                PendingSave save = saves.get(index);
+                try {
+                    ChunkSnapshot snapshot = save.chunk.snapshot();
+                    storage.save(snapshot, save.treeRoots);
+                    versions[index] = snapshot.getVersion();
+                    written[index] = true;
+                } catch (IOException | RuntimeException e) {
+                    Platform.getLogger().error(LOG_TAG, "Failed to save chunk " + save.chunk.getChunkX() + "," + save.chunk.getChunkY() + "," + save.chunk.getChunkZ(), e);
+                    failures++;
+                }
+            }
+
+            Chunk first = saves.get(0).chunk;
+            try {
+                storage.flush(first.getChunkX(), first.getChunkY(), first.getChunkZ());
+            } catch (IOException e) {
+                Platform.getLogger().error(LOG_TAG, "Failed to sync the region of chunk " + first.getChunkX() + "," + first.getChunkY() + "," + first.getChunkZ(), e);
+                for (boolean wasWritten : written) {
+                    if (wasWritten) failures++; // Not durable, keep the chunks dirty and their edits in the journal
+                }
+                continue;
+            }
+            for (int index = 0; index < saves.size(); index++) {
+                if (!written[index]) continue;
+                PendingSave save = saves.get(index);
+                save.chunk.markClean(versions[index]);
+                if (journal != null) journal.markSaved(save.key, versions[index]); // Synced above, the journal no longer needs these edits
+            }
+        }
+        return failures;
+    }
+
+    /**
+     * Wait until everything queued so far is written
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void flush() throws InterruptedException {
+        lock.lock();
+        try {
+            while (!pending.isEmpty()) {
+                spaceAvailable.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Write everything still queued, stop the writer thread and close the journal and the storage. Nothing can be queued afterwards.
+     * @throws IOException if closing the journal or the storage fails
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            running = false;
+            saveAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        boolean interrupted = false;
+        while (writer.isAlive()) {
+            try {
+                writer.join();
+            } catch (InterruptedException e) {
+                interrupted = true; // Keep waiting, closing the storage under the writer would lose chunks
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+        try {
+            if (journal != null) journal.close();
+        } finally {
+            storage.close();
+        }
+    }
+
+    private static final class PendingSave {
+        private final long key;
+        private final Chunk chunk;
+        private final int[] treeRoots;
+
+        private PendingSave(long key, Chunk chunk, int[] treeRoots) {
+            this.key = key;
+            this.chunk = chunk;
+            this.treeRoots = treeRoots;
+        }
+    }
+}
@@ -0,0 +1,505 @@
+package inferno.cube_game.common.levels.storage;
+
+import inferno.cube_game.common.blocks.Block;
+import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.common.levels.chunks.ChunkEditListener;
+import inferno.cube_game.common.levels.chunks.ChunkKey;
+import inferno.cube_game.common.platform.Platform;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append only log of block edits, so an edit is on the disk long before the chunk holding it is rewritten.
+ * A record is a chunk key, a block index and a block id from the save's BlockIdMap, 14 bytes instead of a whole chunk.
+ * Edits are buffered and a committer thread writes everything buffered since its last sync as one group, the record
+ * count, the records and their CRC32, then syncs once, so edits arriving during a sync share the next one.
+ * The log is split into segment files. Once every chunk edited in the oldest segment was saved with those edits, which
+ * the ChunkSaveService reports through markSaved, the segment is deleted, so whole chunks only need writing now and then.
+ * Segments only go oldest first: replaying what is left in order then always ends with the latest edit of each block.
+ * Opening the journal reads back what a crash left behind, stopping at a torn group, moves it into a fresh segment and
+ * hands it to each chunk through attach once the chunk is loaded or generated.
+ * @see ChunkSaveService
+ * @see BlockIdMap
+ * @author inferno4you
+ */
+public class EditJournal implements ChunkEditListener, AutoCloseable {
+    public static final int SEGMENT_SIZE = 1024 * 1024; // Bytes written before starting the next segment
+    private static final int RECORD_SIZE = 14; // Chunk key, block index and block id
+    private static final int GROUP_OVERHEAD = 8; // Record count before and CRC32 after the records
+    private static final long REPLAYED_VERSION = Long.MIN_VALUE; // Edits read back on opening, any save of their chunk includes them
+    private static final String SEGMENT_PREFIX = "edits.", SEGMENT_SUFFIX = ".journal";
+    private static final String LOG_TAG = "EditJournal";
+
+    private final Path directory;
+    private final BlockIdMap blockIds;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition editsAvailable = lock.newCondition();
+    private final Condition groupWritten = lock.newCondition();
+    private final ArrayList<Segment> segments = new ArrayList<>(); // Oldest first, the last one is written to. Guarded by lock
+    private final HashMap<Long, LinkedHashMap<Integer, Integer>> replayedEdits = new HashMap<>(); // Block ids by index per chunk, until attached. Guarded by lock
+    private final Thread committer;
+    private ByteBuffer buffer = ByteBuffer.allocate(4096); // Records of the next group, guarded by lock
+    private HashMap<Long, Long> bufferedVersions = new HashMap<>(); // Latest version per chunk with records in buffer, guarded by lock
+    private boolean running = true; // Guarded by lock
+    private long appendedEdits, writtenEdits, failedEdits, commits; // Guarded by lock
+    private final int replayedEditCount;
+
+    /**
+     * Open the journal of a save, reading back edits left from the last run, and start its committer thread
+     * @param directory save directory, the segments are kept next to the region files
+     * @param blockIds block ids of the save, shared with the region storage
+     * @throws IOException if the directory or a segment can not be read or the fresh segment can not be written
+     */
+    public EditJournal(Path directory, BlockIdMap blockIds) throws IOException {
+        this.directory = directory;
+        this.blockIds = blockIds;
+        Files.createDirectories(directory);
+
+        List<Path> previousSegments = new ArrayList<>();
+        long nextSequence = 0;
+        int replayed = 0;
+        for (Map.Entry<Long, Path> segment : findSegments().entrySet()) {
+            replayed += replay(segment.getValue());
+            previousSegments.add(segment.getValue());
+            nextSequence = segment.getKey() + 1;
+        }
+        replayedEditCount = replayed;
+        if (replayed > 0) Platform.getLogger().info(LOG_TAG, "Recovered " + replayed + " edits of " + replayedEdits.size() + " chunks");
+
+        Segment active = openSegment(nextSequence);
+        try {
+            if (!replayedEdits.isEmpty()) { // Rewrite only the latest block of each position, then the old segments can go
+                ByteBuffer records = ByteBuffer.allocate(countReplayedEdits() * RECORD_SIZE);
+                for (Map.Entry<Long, LinkedHashMap<Integer, Integer>> chunk : replayedEdits.entrySet()) {
+                    for (Map.Entry<Integer, Integer> edit : chunk.getValue().entrySet()) {
+                        records.putLong(chunk.getKey()).putShort(edit.getKey().shortValue()).putInt(edit.getValue());
+                    }
+                    active.editedVersions.put(chunk.getKey(), REPLAYED_VERSION);
+                }
+                writeGroup(active, records);
+            }
+        } catch (IOException e) {
+            active.channel.close();
+            throw e;
+        }
+        for (Path segment : previousSegments) {
+            Files.deleteIfExists(segment);
+        }
+        segments.add(active);
+
+        committer = new Thread(this::runCommitter, "EditJournal");
+        committer.setDaemon(true);
+        committer.start();
+    }
+
+    /**
+     * Apply the edits read back for a chunk on opening, then journal its later edits. Called once the chunk finished
+     * generating or loading, so the blocks generation places are not journaled.
+     * @param chunk decorated chunk
+     */
+    public void attach(Chunk chunk) {
+        LinkedHashMap<Integer, Integer> edits;
+        lock.lock();
+        try {
+            edits = replayedEdits.remove(ChunkKey.pack(chunk.getChunkX(), chunk.getChunkY(), chunk.getChunkZ()));
+        } finally {
+            lock.unlock();
+        }
+
+        if (edits != null) { // Applied before listening, they are journaled already and leave the chunk dirty until saved
+            for (Map.Entry<Integer, Integer> edit : edits.entrySet()) {
+                int index = edit.getKey();
+                try {
+                    chunk.setBlock(index / (Chunk.CHUNK_SIZE * Chunk.CHUNK_SIZE), (index / Chunk.CHUNK_SIZE) % Chunk.CHUNK_SIZE,
+                        index % Chunk.CHUNK_SIZE, blockIds.getBlock(edit.getValue()));
+                } catch (IOException e) {
+                    Platform.getLogger().error(LOG_TAG, "Skipped an edit of chunk " + chunk.getChunkX() + "," + chunk.getChunkY() + "," + chunk.getChunkZ(), e); // Id missing from the id file
+                }
+            }
+        }
+        if (edits != null && !chunk.isDirty()) markSaved(ChunkKey.pack(chunk.getChunkX(), chunk.getChunkY(), chunk.getChunkZ()), chunk.getVersion()); // Stored with every edit already
+        chunk.setEditListener(this);
+    }
+
+    /**
+     * Buffer an edit for the next group commit. Does not wait for the disk, a block id seen for the first time is
+     * synced by the committer before the group using it.
+     */
+    @Override
+    public void onBlockChanged(Chunk chunk, int index, Block block, long version) {
+        int blockId = blockIds.reserveId(block); // Called with the chunk locked, so no disk access here
+        long key = ChunkKey.pack(chunk.getChunkX(), chunk.getChunkY(), chunk.getChunkZ());
+        lock.lock();
+        try {
+            if (!running) return; // Closing, dirty chunks are saved in full instead
+
+            if (buffer.remaining() < RECORD_SIZE) {
+                ByteBuffer grown = ByteBuffer.allocate(buffer.capacity() * 2);
+                buffer.flip();
+                buffer = grown.put(buffer);
+            }
+            buffer.putLong(key).putShort((short) index).putInt(blockId);
+            bufferedVersions.put(key, version);
+            appendedEdits++;
+            editsAvailable.signal();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Drop the edits of a chunk up to a version, once that version is stored, and delete the oldest segments left
+     * without unsaved edits
+     * @param chunkKey packed key of the saved chunk
+     * @param savedVersion version of the stored blocks
+     */
+    public void markSaved(long chunkKey, long savedVersion) {
+        List<Path> obsolete;
+        lock.lock();
+        try {
+            Long buffered = bufferedVersions.get(chunkKey);
+            if (buffered != null && buffered <= savedVersion) bufferedVersions.remove(chunkKey);
+
+            for (Segment segment : segments) {
+                Long edited = segment.editedVersions.get(chunkKey);
+                if (edited != null && edited <= savedVersion) segment.editedVersions.remove(chunkKey);
+            }
+            obsolete = removeObsoleteSegments(false);
+        } finally {
+            lock.unlock();
+        }
+        deleteQuietly(obsolete);
+    }
+
+    /**
+     * Take the oldest segments without unsaved edits off the list, stopping at the first one that still has some
+     * @param includeActive whether the segment written to may go as well
+     * @return Paths of the removed segments, to delete outside the lock
+     */
+    private List<Path> removeObsoleteSegments(boolean includeActive) {
+        List<Path> obsolete = new ArrayList<>();
+        while (segments.size() > (includeActive ? 0 : 1) && segments.get(0).editedVersions.isEmpty()) {
+            obsolete.add(segments.remove(0).path);
+        }
+        return obsolete;
+    }
+
+    /**
+     * Wait until every edit buffered so far was written and synced, or failed to
+     * @throws InterruptedException if interrupted while waiting
+     */
+    public void sync() throws InterruptedException {
+        lock.lock();
+        try {
+            long target = appendedEdits;
+            while (writtenEdits + failedEdits < target) {
+                groupWritten.await();
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Edits read back when the journal was opened
+     */
+    public int getReplayedCount() {
+        return replayedEditCount;
+    }
+
+    /**
+     * @return Edits written and synced since the journal was opened
+     */
+    public long getWrittenCount() {
+        lock.lock();
+        try {
+            return writtenEdits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Edits that could not be written, their chunks stay dirty so they are saved in full instead
+     */
+    public long getFailedCount() {
+        lock.lock();
+        try {
+            return failedEdits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return Groups written, each costing one sync however many edits it holds
+     */
+    public long getCommitCount() {
+        lock.lock();
+        try {
+            return commits;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getSegmentCount() {
+        lock.lock();
+        try {
+            return segments.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void runCommitter() {
+        ByteBuffer spare = ByteBuffer.allocate(buffer.capacity());
+        while (true) {
+            ByteBuffer records;
+            Segment segment;
+            lock.lock();
+            try {
+                while (buffer.position() == 0 && running) {
+                    editsAvailable.awaitUninterruptibly();
+                }
+                if (buffer.position() == 0) return; // Closed and drained
+
+                records = buffer;
+                buffer = spare;
+                segment = segments.get(segments.size() - 1);
+                segment.editedVersions.putAll(bufferedVersions); // Before writing, a save finishing meanwhile removes them again
+                bufferedVersions = new HashMap<>();
+            } finally {
+                lock.unlock();
+            }
+
+            int count = records.position() / RECORD_SIZE;
+            boolean written = false;
+            try {
+                records.flip();
+                blockIds.syncNames(); // Ids reserved by onBlockChanged have to be on the disk before records using them
+                writeGroup(segment, records);
+                written = true;
+            } catch (IOException e) {
+                Platform.getLogger().error(LOG_TAG, "Failed to write " + count + " edits", e); // The chunks stay dirty, the edits are saved with them
+            }
+
+            lock.lock();
+            try {
+                if (written) {
+                    writtenEdits += count;
+                    commits++;
+                } else {
+                    failedEdits += count;
+                }
+                groupWritten.signalAll();
+            } finally {
+                lock.unlock();
+            }
+
+            records.clear();
+            spare = records;
+            if (segment.size >= SEGMENT_SIZE) startNextSegment(segment);
+        }
+    }
+
+    /**
+     * Append one group to a segment and sync it. A group that fails halfway is overwritten by the next one.
+     * @param segment segment to write to, only ever the one the committer writes to
+     * @param records records of the group, from position to limit
+     */
+    private void writeGroup(Segment segment, ByteBuffer records) throws IOException {
+        CRC32 checksum = new CRC32();
+        checksum.update(records.array(), records.arrayOffset() + records.position(), records.remaining());
+        ByteBuffer group = ByteBuffer.allocate(GROUP_OVERHEAD + records.remaining());
+        group.putInt(records.remaining() / RECORD_SIZE).put(records).putInt((int) checksum.getValue());
+        group.flip();
+
+        long position = segment.size;
+        try {
+            while (group.hasRemaining()) {
+                position += segment.channel.write(group, position);
+            }
+            segment.channel.force(false);
+        } catch (IOException e) {
+            try {
+                segment.channel.truncate(segment.size);
+            } catch (IOException ignored) {
+                // The torn group fails its checksum on replay and is overwritten by the next group anyway
+            }
+            throw e;
+        }
+        segment.size = position;
+    }
+
+    private void startNextSegment(Segment full) {
+        Segment next;
+        try {
+            next = openSegment(full.sequence + 1);
+        } catch (IOException e) {
+            Platform.getLogger().error(LOG_TAG, "Failed to start journal segment " + (full.sequence + 1), e); // Keep appending to the full one
+            return;
+        }
+
+        List<Path> obsolete;
+        lock.lock();
+        try {
+            segments.add(next);
+            obsolete = removeObsoleteSegments(false);
+        } finally {
+            lock.unlock();
+        }
+        closeQuietly(full);
+        deleteQuietly(obsolete);
+    }
+
+    /**
+     * Read the groups of a segment into replayedEdits, up to the first torn or damaged one
+     * @return Number of edits read
+     */
+    private int replay(Path path) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(path));
+        CRC32 checksum = new CRC32();
+        int edits = 0;
+        while (data.remaining() >= GROUP_OVERHEAD) {
+            int count = data.getInt();
+            if (count <= 0 || (long) count * RECORD_SIZE + 4 > data.remaining()) break; // Torn by a crash while writing
+
+            int start = data.position(), length = count * RECORD_SIZE;
+            checksum.reset();
+            checksum.update(data.array(), start, length);
+            if (data.getInt(start + length) != (int) checksum.getValue()) break;
+
+            for (int record = 0; record < count; record++) {
+                long key = data.getLong();
+                int index = data.getShort() & 0xFFFF;
+                int blockId = data.getInt();
+                if (index >= Chunk.CHUNK_VOLUME) continue;
+                replayedEdits.computeIfAbsent(key, ignored -> new LinkedHashMap<>()).put(index, blockId); // Later edits replace earlier ones
+                edits++;
+            }
+            data.position(start + length + 4);
+        }
+        return edits;
+    }
+
+    private int countReplayedEdits() {
+        int count = 0;
+        for (LinkedHashMap<Integer, Integer> edits : replayedEdits.values()) {
+            count += edits.size();
+        }
+        return count;
+    }
+
+    /**
+     * Find the segments in the save directory
+     * @return Paths by sequence number, oldest first
+     */
+    private Map<Long, Path> findSegments() throws IOException {
+        TreeMap<Long, Path> found = new TreeMap<>();
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, SEGMENT_PREFIX + "*" + SEGMENT_SUFFIX)) {
+            for (Path path : stream) {
+                String name = path.getFileName().toString();
+                try {
+                    found.put(Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length())), path);
+                } catch (NumberFormatException ignored) {
+                    // Not one of ours
+                }
+            }
+        }
+        return found;
+    }
+
+    private Segment openSegment(long sequence) throws IOException {
+        Path path = directory.resolve(SEGMENT_PREFIX + sequence + SEGMENT_SUFFIX);
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+        return new Segment(sequence, path, channel);
+    }
+
+    /**
+     * Write every buffered edit, stop the committer thread and close the segment. Nothing is left on the disk if every
+     * edit was saved. Edits made afterwards are not journaled.
+     * @throws IOException if closing the segment fails
+     */
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            running = false;
+            editsAvailable.signalAll();
+        } finally {
+            lock.unlock();
+        }
+
+        boolean interrupted = false;
+        while (committer.isAlive()) {
+            try {
+                committer.join();
+            } catch (InterruptedException e) {
+                interrupted = true; // Keep waiting, closing the segment under the committer would lose edits
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+
+        Segment active;
+        List<Path> obsolete;
+        lock.lock();
+        try {
+            active = segments.get(segments.size() - 1);
+            obsolete = removeObsoleteSegments(true);
+        } finally {
+            lock.unlock();
+        }
+        active.channel.close();
+        for (Path path : obsolete) {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    private static void closeQuietly(Segment segment) {
+        try {
+            segment.channel.close();
+        } catch (IOException ignored) {
+            // Every group was synced already
+        }
+    }
+
+    private static void deleteQuietly(List<Path> paths) {
+        for (Path path : paths) {
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                Platform.getLogger().error(LOG_TAG, "Failed to delete " + path, e); // Only replays saved edits again on the next start, in their original order
+            }
+        }
+    }
+
+    private static final class Segment {
+        private final long sequence;
+        private final Path path;
+        private final FileChannel channel; // Only written by the committer
+        private final HashMap<Long, Long> editedVersions = new HashMap<>(); // Latest journaled version per chunk not saved since, guarded by the journal's lock
+        private long size; // Bytes of complete groups, only touched by the committer
+
+        private Segment(long sequence, Path path, FileChannel channel) {
+            this.sequence = sequence;
+            this.path = path;
+            this.channel = channel;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package inferno.cube_game.common.levels.storage;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * How chunk payloads are compressed inside a region file. The id is stored with every record, so a storage can
+ * change compression and still read what it wrote before.
+ * @see RegionFile
+ * @author inferno4you
+ */
+public enum RegionCompression {
+    NONE((byte) 0),
+    DEFLATE((byte) 1); // Fastest level, chunk palettes and packed indices repeat a lot and shrink well even then
+
+    private final byte id;
+
+    RegionCompression(byte id) {
+        this.id = id;
+    }
+
+    public byte getId() {
+        return id;
+    }
+
+    /**
+     * @param id id read from a record
+     * @return Compression with the id
+     * @throws IOException if no compression has the id
+     */
+    public static RegionCompression byId(byte id) throws IOException {
+        for (RegionCompression compression : values()) {
+            if (compression.id == id) return compression;
+        }
+        throw new IOException("Unknown chunk compression " + id);
+    }
+
+    /**
+     * Compress a payload
+     * @param data bytes to compress
+     * @param length number of bytes to compress
+     * @return Compressed bytes, the input itself for NONE
+     */
+    public byte[] compress(byte[] data, int length) throws IOException {
+        if (this == NONE) return length == data.length ? data : Arrays.copyOf(data, length);
+
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream(length / 2 + 16);
+        try (DeflaterOutputStream output = new DeflaterOutputStream(compressed, deflater)) {
+            output.write(data, 0, length);
+        } finally {
+            deflater.end();
+        }
+        return compressed.toByteArray();
+    }
+
+    /**
+     * Open a stream that decompresses a stored payload
+     * @param data stored bytes
+     * @return Stream of the original bytes
+     */
+    public InputStream decompress(byte[] data) {
+        InputStream input = new ByteArrayInputStream(data);
+        return this == NONE ? input : new InflaterInputStream(input);
+    }
+}
@@ -0,0 +1,267 @@
+package inferno.cube_game.common.levels.storage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+
+/**
+ * One file holding the chunks of a REGION_SIZE³ cube, split into fixed size sectors.
+ * Sector 0 holds the file header, the next sectors a table with one int per chunk: the first sector of its record
+ * in the upper 24 bits and the number of sectors in the lower 8, zero while the chunk was never written.
+ * A record is the payload length, a compression id and the payload. Records are written to free sectors before the
+ * table points at them, and the sectors of a replaced record are only reused after the next flush synced the new one,
+ * so a crash or power loss in the middle of a write leaves the previous version of the chunk readable.
+ * All access goes through one FileChannel and is synchronized per file.
+ * @see RegionStorage
+ * @author inferno4you
+ */
+public class RegionFile implements AutoCloseable {
+    public static final int REGION_SIZE = 16; // Chunks per axis
+    public static final int CHUNKS_PER_REGION = REGION_SIZE * REGION_SIZE * REGION_SIZE;
+    public static final int SECTOR_SIZE = 256; // Small sectors since most chunks are uniform and only a few bytes
+    public static final int MAX_SECTORS_PER_RECORD = 255;
+    public static final int RECORD_HEADER_SIZE = 5; // Payload length and compression id
+    private static final int MAGIC = 0x43475247; // "CGRG"
+    private static final short FORMAT_VERSION = 2; // 2 stores records with ChunkCodec
+    private static final int TABLE_SECTORS = CHUNKS_PER_REGION * 4 / SECTOR_SIZE;
+    private static final int HEADER_SECTORS = 1 + TABLE_SECTORS; // File header followed by the table
+
+    private final Path path;
+    private final FileChannel channel;
+    private final int[] locations = new int[CHUNKS_PER_REGION]; // Copy of the table
+    private final BitSet usedSectors = new BitSet();
+    private final BitSet releasedSectors = new BitSet(); // Freed since the last flush, the table on disk may still point at them
+    private int sectorCount; // Sectors in the file, new records past every used sector are appended here
+    private boolean closed;
+
+    /**
+     * Open a region file, creating it with an empty table if it does not exist
+     * @param path file to open
+     * @throws IOException if the file can not be read or is not a region file
+     */
+    public RegionFile(Path path) throws IOException {
+        this.path = path;
+        this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            if (channel.size() == 0) {
+                writeEmptyHeader();
+            } else {
+                readHeader();
+            }
+        } catch (IOException | RuntimeException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Get the index of a chunk in the table
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @return Index from 0 to CHUNKS_PER_REGION - 1
+     */
+    public static int getLocalIndex(int chunkX, int chunkY, int chunkZ) {
+        return (Math.floorMod(chunkX, REGION_SIZE) * REGION_SIZE + Math.floorMod(chunkY, REGION_SIZE)) * REGION_SIZE + Math.floorMod(chunkZ, REGION_SIZE);
+    }
+
+    private void writeEmptyHeader() throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SECTORS * SECTOR_SIZE);
+        header.putInt(MAGIC).putShort(FORMAT_VERSION).putShort((short) REGION_SIZE).putShort((short) SECTOR_SIZE);
+        header.rewind();
+        writeFully(header, 0);
+        usedSectors.set(0, HEADER_SECTORS);
+        sectorCount = HEADER_SECTORS;
+    }
+
+    private void readHeader() throws IOException {
+        if (channel.size() < (long) HEADER_SECTORS * SECTOR_SIZE) throw new IOException("Truncated region file " + path);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SECTORS * SECTOR_SIZE);
+        readFully(header, 0);
+        header.flip();
+        if (header.getInt() != MAGIC) throw new IOException("Not a region file: " + path);
+        short version = header.getShort();
+        if (version != FORMAT_VERSION) throw new IOException("Region file " + path + " has format " + version + ", expected " + FORMAT_VERSION);
+        if (header.getShort() != REGION_SIZE || header.getShort() != SECTOR_SIZE) throw new IOException("Region file " + path + " has a different layout");
+
+        sectorCount = (int) ((channel.size() + SECTOR_SIZE - 1) / SECTOR_SIZE);
+        usedSectors.set(0, HEADER_SECTORS);
+        header.position(SECTOR_SIZE);
+        for (int index = 0; index < CHUNKS_PER_REGION; index++) {
+            int location = header.getInt();
+            int firstSector = location >>> 8, sectors = location & 0xFF;
+            if (location != 0 && (firstSector < HEADER_SECTORS || firstSector + sectors > sectorCount)) {
+                location = 0; // Points outside the file, treat the chunk as never written
+            }
+            locations[index] = location;
+            if (location != 0) usedSectors.set(firstSector, firstSector + sectors);
+        }
+    }
+
+    /**
+     * Check whether a chunk was written, without touching the file
+     * @param localIndex index from getLocalIndex
+     * @return true if read would find a record
+     */
+    public synchronized boolean hasChunk(int localIndex) {
+        return locations[localIndex] != 0;
+    }
+
+    /**
+     * Read the record of a chunk
+     * @param localIndex index from getLocalIndex
+     * @return Record, or null if the chunk was never written
+     * @throws IOException if reading fails or the record is damaged
+     */
+    public synchronized Record read(int localIndex) throws IOException {
+        ensureOpen();
+        int location = locations[localIndex];
+        if (location == 0) return null;
+
+        ByteBuffer buffer = ByteBuffer.allocate((location & 0xFF) * SECTOR_SIZE);
+        readFully(buffer, (long) (location >>> 8) * SECTOR_SIZE);
+        buffer.flip();
+        int length = buffer.getInt();
+        byte compression = buffer.get();
+        if (length < 0 || length > buffer.remaining()) throw new IOException("Damaged chunk record " + localIndex + " in " + path);
+
+        byte[] payload = new byte[length];
+        buffer.get(payload);
+        return new Record(compression, payload);
+    }
+
+    /**
+     * Write the record of a chunk to free sectors, then point the table at them. The old ones are freed by the next flush
+     * @param localIndex index from getLocalIndex
+     * @param compression id of the compression the payload uses
+     * @param payload bytes to store
+     * @param length number of payload bytes to store
+     * @throws IOException if writing fails or the record does not fit MAX_SECTORS_PER_RECORD sectors
+     */
+    public synchronized void write(int localIndex, byte compression, byte[] payload, int length) throws IOException {
+        ensureOpen();
+        int sectors = (RECORD_HEADER_SIZE + length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+        if (sectors > MAX_SECTORS_PER_RECORD) throw new IOException("Chunk record of " + length + " bytes is too large for a region file");
+
+        int firstSector = allocate(sectors);
+        ByteBuffer buffer = ByteBuffer.allocate(sectors * SECTOR_SIZE); // Pad to whole sectors so the file length stays aligned
+        buffer.putInt(length).put(compression).put(payload, 0, length);
+        buffer.rewind();
+        int previous = locations[localIndex];
+        try {
+            writeFully(buffer, (long) firstSector * SECTOR_SIZE);
+            setLocation(localIndex, firstSector << 8 | sectors);
+        } catch (IOException e) {
+            releasedSectors.set(firstSector, firstSector + sectors); // The table entry on disk may be half written
+            throw e;
+        }
+        if (previous != 0) releasedSectors.set(previous >>> 8, (previous >>> 8) + (previous & 0xFF));
+    }
+
+    /**
+     * Forget a chunk, so it is generated again the next time it is needed
+     * @param localIndex index from getLocalIndex
+     * @throws IOException if writing the table fails
+     */
+    public synchronized void delete(int localIndex) throws IOException {
+        ensureOpen();
+        int previous = locations[localIndex];
+        if (previous == 0) return;
+
+        setLocation(localIndex, 0);
+        releasedSectors.set(previous >>> 8, (previous >>> 8) + (previous & 0xFF));
+    }
+
+    /**
+     * Find the first run of free sectors that is long enough, appending to the file if there is none
+     * @param sectors length of the run
+     * @return First sector of the run, marked used
+     */
+    private int allocate(int sectors) {
+        int start = usedSectors.nextClearBit(HEADER_SECTORS);
+        while (start < sectorCount) {
+            int end = usedSectors.nextSetBit(start);
+            if (end < 0 || end > sectorCount) end = sectorCount;
+            if (end - start >= sectors) break;
+            start = usedSectors.nextClearBit(end);
+        }
+        usedSectors.set(start, start + sectors);
+        sectorCount = Math.max(sectorCount, start + sectors);
+        return start;
+    }
+
+    private void setLocation(int localIndex, int location) throws IOException {
+        ByteBuffer entry = ByteBuffer.allocate(4).putInt(location);
+        entry.rewind();
+        writeFully(entry, SECTOR_SIZE + localIndex * 4L);
+        locations[localIndex] = location;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) throw new IOException("Unexpected end of region file " + path);
+        }
+    }
+
+    private void writeFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+    }
+
+    private void ensureOpen() throws IOException {
+        if (closed) throw new ClosedChannelException();
+    }
+
+    /**
+     * Force written records and the table to the disk, then free the sectors of the records they replaced
+     * @throws IOException if syncing fails
+     */
+    public synchronized void flush() throws IOException {
+        if (closed) return;
+        channel.force(false);
+        usedSectors.andNot(releasedSectors);
+        releasedSectors.clear();
+    }
+
+    public synchronized boolean isClosed() {
+        return closed;
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) return;
+        closed = true;
+        channel.close();
+    }
+
+    /**
+     * Payload of one chunk as stored, still compressed
+     */
+    public static final class Record {
+        private final byte compression;
+        private final byte[] payload;
+
+        public Record(byte compression, byte[] payload) {
+            this.compression = compression;
+            this.payload = payload;
+        }
+
+        public byte getCompression() {
+            return compression;
+        }
+
+        public byte[] getPayload() {
+            return payload;
+        }
+    }
+}
@@ -0,0 +1,262 @@
+package inferno.cube_game.common.levels.storage;
+
+import inferno.cube_game.common.levels.chunks.ChunkKey;
+import inferno.cube_game.common.levels.chunks.ChunkView;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.ClosedChannelException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Saves and loads chunks in region files under a directory, keeping the most recently used files open.
+ * Chunks are written with a ChunkCodec using the block ids in the directory's id file, then compressed.
+ * Safe to use from several threads.
+ * @see RegionFile
+ * @see ChunkCodec
+ * @author inferno4you
+ */
+public class RegionStorage implements AutoCloseable {
+    public static final int MAX_OPEN_REGIONS = 64; // Open file handles, a region covers 16³ chunks so this is plenty for one player
+    public static final String BLOCK_ID_FILE = "block_ids.txt";
+
+    private final Path directory;
+    private final RegionCompression compression;
+    private final LinkedHashMap<Long, RegionFile> openRegions = new LinkedHashMap<>(16, 0.75f, true) { // Access order, eldest is least recently used
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Long, RegionFile> eldest) {
+            if (size() <= MAX_OPEN_REGIONS) return false;
+            closeQuietly(eldest.getValue());
+            return true;
+        }
+    };
+    private final HashSet<Long> missingRegions = new HashSet<>(); // Regions without a file, so loads there need no disk access
+    private BlockIdMap blockIds; // Opened on first use, guarded by openRegions
+    private ChunkCodec codec; // Guarded by openRegions
+    private boolean closed;
+
+    /**
+     * @param directory directory holding the region files, created on the first save
+     */
+    public RegionStorage(Path directory) {
+        this(directory, RegionCompression.DEFLATE);
+    }
+
+    /**
+     * @param directory directory holding the region files, created on the first save
+     * @param compression compression used for chunks saved from now on
+     */
+    public RegionStorage(Path directory, RegionCompression compression) {
+        this.directory = directory;
+        this.compression = compression;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Check whether a chunk is certainly not stored, without touching the disk. False means it may be stored,
+     * which only load can tell.
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @return true if the chunk's region has no file or its open file has no record for the chunk
+     */
+    public boolean isKnownAbsent(int chunkX, int chunkY, int chunkZ) {
+        long regionKey = getRegionKey(chunkX, chunkY, chunkZ);
+        RegionFile region;
+        synchronized (openRegions) {
+            if (missingRegions.contains(regionKey)) return true;
+            region = openRegions.get(regionKey);
+        }
+        return region != null && !region.hasChunk(RegionFile.getLocalIndex(chunkX, chunkY, chunkZ));
+    }
+
+    /**
+     * Read a chunk
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @return Stored chunk, or null if it was never saved
+     * @throws IOException if reading fails or the stored chunk is damaged
+     */
+    public StoredChunk load(int chunkX, int chunkY, int chunkZ) throws IOException {
+        int localIndex = RegionFile.getLocalIndex(chunkX, chunkY, chunkZ);
+        while (true) {
+            RegionFile region = getRegion(chunkX, chunkY, chunkZ, false);
+            if (region == null) return null;
+
+            RegionFile.Record record;
+            try {
+                record = region.read(localIndex);
+            } catch (ClosedChannelException e) {
+                if (!region.isClosed()) throw e;
+                continue; // Closed to make room for another region, open it again
+            }
+            if (record == null) return null;
+
+            RegionCompression recordCompression = RegionCompression.byId(record.getCompression());
+            try (DataInputStream input = new DataInputStream(recordCompression.decompress(record.getPayload()))) {
+                return getCodec().decode(input, chunkX, chunkY, chunkZ);
+            }
+        }
+    }
+
+    /**
+     * Write a chunk, replacing what was stored for it before. Not synced to the disk until flush.
+     * @param chunk blocks to save, a snapshot if the chunk may change meanwhile
+     * @param treeRoots block indices trees grow from, so generated neighbours can still grow them across the border
+     * @throws IOException if writing fails
+     */
+    public void save(ChunkView chunk, int[] treeRoots) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream output = new DataOutputStream(bytes)) {
+            getCodec().encode(chunk, treeRoots, output);
+        }
+        byte[] payload = compression.compress(bytes.toByteArray(), bytes.size());
+
+        int localIndex = RegionFile.getLocalIndex(chunk.getChunkX(), chunk.getChunkY(), chunk.getChunkZ());
+        while (true) {
+            RegionFile region = getRegion(chunk.getChunkX(), chunk.getChunkY(), chunk.getChunkZ(), true);
+            try {
+                region.write(localIndex, compression.getId(), payload, payload.length);
+                return;
+            } catch (ClosedChannelException e) {
+                if (!region.isClosed()) throw e;
+            }
+        }
+    }
+
+    /**
+     * Get the block ids of the save, opening the id file on first use
+     * @return Id map shared by everything writing to this directory
+     * @throws IOException if the id file can not be read
+     */
+    public BlockIdMap getBlockIds() throws IOException {
+        synchronized (openRegions) {
+            if (blockIds == null) blockIds = new BlockIdMap(directory.resolve(BLOCK_ID_FILE));
+            return blockIds;
+        }
+    }
+
+    private ChunkCodec getCodec() throws IOException {
+        synchronized (openRegions) {
+            if (codec == null) codec = new ChunkCodec(getBlockIds());
+            return codec;
+        }
+    }
+
+    /**
+     * Get the key regions are grouped by, the same for every chunk in a region file
+     * @param chunkX the coordinate to chunk in x
+     * @param chunkY the coordinate to chunk in y
+     * @param chunkZ the coordinate to chunk in z
+     * @return Packed region coordinates
+     */
+    public static long getRegionKey(int chunkX, int chunkY, int chunkZ) {
+        return ChunkKey.pack(Math.floorDiv(chunkX, RegionFile.REGION_SIZE), Math.floorDiv(chunkY, RegionFile.REGION_SIZE), Math.floorDiv(chunkZ, RegionFile.REGION_SIZE));
+    }
+
+    /**
+     * Get the open file of a chunk's region, opening it if needed
+     * @param create whether to create the file if it does not exist
+     * @return Region file, or null if it does not exist and create is false
+     */
+    private RegionFile getRegion(int chunkX, int chunkY, int chunkZ, boolean create) throws IOException {
+        long regionKey = getRegionKey(chunkX, chunkY, chunkZ);
+        synchronized (openRegions) {
+            if (closed) throw new IllegalStateException("Region storage " + directory + " is closed");
+
+            RegionFile region = openRegions.get(regionKey);
+            if (region != null) return region;
+            if (!create && missingRegions.contains(regionKey)) return null;
+
+            Path path = directory.resolve(getFileName(regionKey));
+            if (!create && !Files.exists(path)) {
+                missingRegions.add(regionKey);
+                return null;
+            }
+
+            Files.createDirectories(directory);
+            region = new RegionFile(path);
+            missingRegions.remove(regionKey);
+            openRegions.put(regionKey, region);
+            return region;
+        }
+    }
+
+    private static String getFileName(long regionKey) {
+        return "r." + ChunkKey.getX(regionKey) + "." + ChunkKey.getY(regionKey) + "." + ChunkKey.getZ(regionKey) + ".region";
+    }
+
+    /**
+     * Force everything written to one region file to the disk
+     * @param chunkX the coordinate in x of any chunk in the region
+     * @param chunkY the coordinate in y of any chunk in the region
+     * @param chunkZ the coordinate in z of any chunk in the region
+     * @throws IOException if syncing fails
+     */
+    public void flush(int chunkX, int chunkY, int chunkZ) throws IOException {
+        RegionFile region;
+        synchronized (openRegions) {
+            region = openRegions.get(getRegionKey(chunkX, chunkY, chunkZ));
+        }
+        if (region != null) region.flush(); // Files closed meanwhile were synced when closing
+    }
+
+    /**
+     * Force everything written so far to the disk
+     * @throws IOException if syncing a file fails
+     */
+    public void flush() throws IOException {
+        RegionFile[] regions;
+        synchronized (openRegions) {
+            regions = openRegions.values().toArray(new RegionFile[0]);
+        }
+        for (RegionFile region : regions) {
+            region.flush();
+        }
+    }
+
+    /**
+     * Sync and close every open region file. Loads and saves fail afterwards.
+     * @throws IOException if closing a file fails
+     */
+    @Override
+    public void close() throws IOException {
+        RegionFile[] regions;
+        synchronized (openRegions) {
+            closed = true;
+            regions = openRegions.values().toArray(new RegionFile[0]);
+            openRegions.clear();
+        }
+
+        IOException failure = null;
+        for (RegionFile region : regions) {
+            try {
+                region.flush();
+                region.close();
+            } catch (IOException e) {
+                if (failure == null) failure = e; // Close the other files anyway
+                else failure.addSuppressed(e);
+            }
+        }
+        if (failure != null) throw failure;
+    }
+
+    private static void closeQuietly(RegionFile region) {
+        try {
+            region.flush();
+            region.close();
+        } catch (IOException ignored) {
+            // Every record was written through the channel already, only the sync may be lost
+        }
+    }
+}
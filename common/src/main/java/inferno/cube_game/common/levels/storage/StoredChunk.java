@@ -0,0 +1,29 @@
+package inferno.cube_game.common.levels.storage;
+
+import inferno.cube_game.common.levels.chunks.Chunk;
+
+/**
+ * A chunk read back from a region file, with the tree roots its generated neighbours still need for decoration
+ * @see RegionStorage
+ * @author inferno4you
+ */
+public final class StoredChunk {
+    private final Chunk chunk;
+    private final int[] treeRoots;
+
+    public StoredChunk(Chunk chunk, int[] treeRoots) {
+        this.chunk = chunk;
+        this.treeRoots = treeRoots;
+    }
+
+    public Chunk getChunk() {
+        return chunk;
+    }
+
+    /**
+     * @return Block indices trees grow from, must not be modified
+     */
+    public int[] getTreeRoots() {
+        return treeRoots;
+    }
+}
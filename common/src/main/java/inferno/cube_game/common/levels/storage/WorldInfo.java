@@ -0,0 +1,102 @@
+package inferno.cube_game.common.levels.storage;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Properties;
+
+/**
+ * Seed and generator a save was created with. Chunks that were never saved are generated when first needed, so a save
+ * opened with other values would grow chunks of a different world next to the stored ones. The file is written once
+ * when the save is created and checked every time it is opened.
+ * @see inferno.cube_game.common.levels.World
+ * @author inferno4you
+ */
+public final class WorldInfo {
+    public static final String FILE_NAME = "world.properties";
+
+    private final long seed;
+    private final String generatorId;
+
+    /**
+     * @param seed world generation seed
+     * @param generatorId id of a generator in ChunkGeneratorRegistry
+     */
+    public WorldInfo(long seed, String generatorId) {
+        this.seed = seed;
+        this.generatorId = generatorId;
+    }
+
+    /**
+     * Read the info of a save
+     * @param saveDirectory directory of the region files
+     * @return Info, or null if the save has none yet
+     * @throws IOException if the file exists but can not be read or is damaged
+     */
+    public static WorldInfo read(Path saveDirectory) throws IOException {
+        Path path = saveDirectory.resolve(FILE_NAME);
+        if (!Files.exists(path)) return null;
+
+        Properties properties = new Properties();
+        try (Reader reader = Files.newBufferedReader(path, StandardCharsets.UTF_8)) {
+            properties.load(reader);
+        }
+        String seed = properties.getProperty("seed"), generatorId = properties.getProperty("generator");
+        if (seed == null || generatorId == null) throw new IOException("Incomplete world info " + path);
+        try {
+            return new WorldInfo(Long.parseLong(seed), generatorId);
+        } catch (NumberFormatException e) {
+            throw new IOException("Damaged seed in " + path, e);
+        }
+    }
+
+    /**
+     * Write the info into a save, replacing the file in one step so a crash never leaves half of it
+     * @param saveDirectory directory of the region files, created if needed
+     * @throws IOException if writing fails
+     */
+    public void write(Path saveDirectory) throws IOException {
+        Files.createDirectories(saveDirectory);
+        Properties properties = new Properties();
+        properties.setProperty("seed", Long.toString(seed));
+        properties.setProperty("generator", generatorId);
+
+        Path temporary = saveDirectory.resolve(FILE_NAME + ".tmp");
+        try (Writer writer = Files.newBufferedWriter(temporary, StandardCharsets.UTF_8)) {
+            properties.store(writer, "World generation settings of this save, do not change");
+        }
+        Files.move(temporary, saveDirectory.resolve(FILE_NAME), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Open the info of a save, writing it if the save is new
+     * @param saveDirectory directory of the region files
+     * @param seed seed the save is opened with
+     * @param generatorId generator the save is opened with
+     * @throws IOException if the file can not be read or written
+     * @throws IllegalStateException if the save was created with another seed or generator
+     */
+    public static void openOrCreate(Path saveDirectory, long seed, String generatorId) throws IOException {
+        WorldInfo stored = read(saveDirectory);
+        if (stored == null) {
+            new WorldInfo(seed, generatorId).write(saveDirectory);
+            return;
+        }
+        if (stored.seed != seed || !stored.generatorId.equals(generatorId)) {
+            throw new IllegalStateException("Save " + saveDirectory + " was created with seed " + stored.seed + " and generator "
+                + stored.generatorId + ", not seed " + seed + " and generator " + generatorId);
+        }
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public String getGeneratorId() {
+        return generatorId;
+    }
+}
@@ -0,0 +1,18 @@
+package inferno.cube_game.common.platform;
+
+/**
+ * Prints information to standard out and errors with their stack trace to standard error
+ * @author inferno4you
+ */
+public class ConsoleLogger implements GameLogger {
+    @Override
+    public void info(String tag, String message) {
+        System.out.println("[" + tag + "] " + message);
+    }
+
+    @Override
+    public void error(String tag, String message, Throwable throwable) {
+        System.err.println("[" + tag + "] " + message);
+        if (throwable != null) throwable.printStackTrace();
+    }
+}
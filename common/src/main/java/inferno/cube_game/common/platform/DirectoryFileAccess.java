@@ -0,0 +1,27 @@
+package inferno.cube_game.common.platform;
+
+import java.nio.file.Path;
+
+/**
+ * Keeps every file below one directory, the working directory by default
+ * @author inferno4you
+ */
+public class DirectoryFileAccess implements FileAccess {
+    private final Path root;
+
+    public DirectoryFileAccess() {
+        this(Path.of(""));
+    }
+
+    /**
+     * @param root directory relative paths are resolved against
+     */
+    public DirectoryFileAccess(Path root) {
+        this.root = root;
+    }
+
+    @Override
+    public Path getWritablePath(String relativePath) {
+        return root.resolve(relativePath);
+    }
+}
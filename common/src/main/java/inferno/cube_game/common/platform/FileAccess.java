@@ -0,0 +1,17 @@
+package inferno.cube_game.common.platform;
+
+import java.nio.file.Path;
+
+/**
+ * Where the game may keep its files, e.g. saves. The game backs it with libGDX, tools and servers with a directory.
+ * @see Platform#getFileAccess()
+ * @author inferno4you
+ */
+public interface FileAccess {
+    /**
+     * Get a path the game can write to
+     * @param relativePath path below the game's data location, e.g. "saves/world"
+     * @return Path, which may not exist yet
+     */
+    Path getWritablePath(String relativePath);
+}
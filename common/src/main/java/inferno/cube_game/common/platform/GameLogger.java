@@ -0,0 +1,22 @@
+package inferno.cube_game.common.platform;
+
+/**
+ * Receives log messages of the simulation. The game forwards them to libGDX, tools and servers print them.
+ * Called from any thread.
+ * @see Platform#getLogger()
+ * @author inferno4you
+ */
+public interface GameLogger {
+    /**
+     * @param tag part of the game the message is about, e.g. "ChunkSaver"
+     * @param message what happened
+     */
+    void info(String tag, String message);
+
+    /**
+     * @param tag part of the game the message is about
+     * @param message what went wrong
+     * @param throwable cause, or null
+     */
+    void error(String tag, String message, Throwable throwable);
+}
@@ -0,0 +1,30 @@
+package inferno.cube_game.common.platform;
+
+/**
+ * File access and logging of whatever runs the simulation. Defaults to the working directory and the console,
+ * the game replaces both with its libGDX backed versions on startup.
+ * @author inferno4you
+ */
+public final class Platform {
+    private static volatile FileAccess fileAccess = new DirectoryFileAccess();
+    private static volatile GameLogger logger = new ConsoleLogger();
+
+    private Platform() {
+    }
+
+    public static FileAccess getFileAccess() {
+        return fileAccess;
+    }
+
+    public static void setFileAccess(FileAccess fileAccess) {
+        Platform.fileAccess = fileAccess;
+    }
+
+    public static GameLogger getLogger() {
+        return logger;
+    }
+
+    public static void setLogger(GameLogger logger) {
+        Platform.logger = logger;
+    }
+}
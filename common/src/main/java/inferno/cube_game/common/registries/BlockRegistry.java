@@ -6,7 +6,6 @@ import inferno.cube_game.common.items.ItemBlock;
 
 import java.util.HashMap;
 import java.util.List;
-import java.util.stream.Collectors;
 
 public class BlockRegistry {
     private static final HashMap<String, Block> BLOCKS = new HashMap<>();
@@ -20,6 +19,10 @@ public class BlockRegistry {
     public static Block COBBLESTONE_BLOCK;
     public static Block GLASS_BLOCK;
     public static Block METAL_BLOCK;
+    public static Block LOG_BLOCK;
+    public static Block LEAVES_BLOCK;
+    public static Block SAND_BLOCK;
+    public static Block WATER_BLOCK;
 
     public static void register(Block block) {
         BLOCKS.put(block.getDomain() + ":" + block.getRegistryName(), block);
@@ -105,6 +108,44 @@ public class BlockRegistry {
             .setType(BlockType.GLASS)
             .build());
 
+        register(LOG_BLOCK = new Block.Builder()
+            .setRegistryName("log_block")
+            .setUnlocalizedName("tile.log")
+            .setSolid(true)
+            .setBreakable(true)
+            .setHardness(2.0f)
+            .setType(BlockType.WOOD)
+            .build());
+
+        register(LEAVES_BLOCK = new Block.Builder()
+            .setRegistryName("leaves_block")
+            .setUnlocalizedName("tile.leaves")
+            .setSolid(true)
+            .setTransparent(true)
+            .setBreakable(true)
+            .setHardness(0.2f)
+            .setType(BlockType.LEAVES)
+            .build());
+
+        register(SAND_BLOCK = new Block.Builder()
+            .setRegistryName("sand_block")
+            .setUnlocalizedName("tile.sand")
+            .setSolid(true)
+            .setBreakable(true)
+            .setHardness(0.5f)
+            .setType(BlockType.SAND)
+            .build());
+
+        register(WATER_BLOCK = new Block.Builder()
+            .setRegistryName("water_block")
+            .setUnlocalizedName("tile.water")
+            .setSolid(false)
+            .setTransparent(true)
+            .setBreakable(false)
+            .setHardness(0.0f)
+            .setType(BlockType.WATER)
+            .build());
+
         // Add more default blocks as needed...
     }
 
@@ -0,0 +1,57 @@
+package inferno.cube_game.common.registries;
+
+import inferno.cube_game.common.levels.chunks.ChunkGenerator;
+import inferno.cube_game.common.levels.chunks.FlatChunkGenerator;
+import inferno.cube_game.common.levels.chunks.NoiseChunkGenerator;
+import inferno.cube_game.common.levels.chunks.VoidChunkGenerator;
+
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Chunk generators by id, each world creates its generator from the id it was made with
+ * @see ChunkGenerator
+ * @author inferno4you
+ */
+public class ChunkGeneratorRegistry {
+    private static final HashMap<String, GeneratorFactory> GENERATORS = new HashMap<>();
+
+    public static final String NOISE = "cube_game:noise";
+    public static final String FLAT = "cube_game:flat";
+    public static final String VOID = "cube_game:void";
+
+    public static void register(String id, GeneratorFactory factory) {
+        GENERATORS.put(id, factory);
+    }
+
+    /**
+     * Create a generator for a world
+     * @param id registered id, e.g. cube_game:noise
+     * @param seed world seed
+     * @return New generator
+     */
+    public static ChunkGenerator create(String id, long seed) {
+        GeneratorFactory factory = GENERATORS.get(id);
+        if (factory == null) throw new IllegalArgumentException("Unknown chunk generator: " + id);
+        return factory.create(seed);
+    }
+
+    public static boolean isRegistered(String id) {
+        return GENERATORS.containsKey(id);
+    }
+
+    public static void registerDefaults() {
+        register(NOISE, NoiseChunkGenerator::new);
+        register(FLAT, seed -> new FlatChunkGenerator());
+        register(VOID, seed -> new VoidChunkGenerator());
+    }
+
+    public static List<String> getRegisteredGeneratorIds() {
+        return GENERATORS.keySet().stream().toList();
+    }
+
+    @FunctionalInterface
+    public interface GeneratorFactory {
+        ChunkGenerator create(long seed);
+    }
+}
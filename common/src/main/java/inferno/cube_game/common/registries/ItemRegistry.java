@@ -1,7 +1,6 @@
 package inferno.cube_game.common.registries;
 
 import inferno.cube_game.common.items.Item;
-import inferno.cube_game.common.items.ItemBlock;
 
 import java.util.HashMap;
 import java.util.List;
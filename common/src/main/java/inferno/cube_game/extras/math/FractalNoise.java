@@ -0,0 +1,179 @@
+package inferno.cube_game.extras.math;
+
+/**
+ * Layered OpenSimplex2S noise, summing octaves of rising frequency and falling amplitude.
+ * Octave seeds, frequencies and amplitudes are derived once when building, so sampling the same point always gives the same value.
+ * Output is normalized to roughly [-amplitude, amplitude].
+ * @see OpenSimplex2S
+ * @author inferno4you
+ */
+public class FractalNoise {
+    private final Type type;
+    private final float amplitude;
+    private final long[] octaveSeeds;
+    private final double[] octaveFrequencies;
+    private final float[] octaveAmplitudes; // Already divided by their sum, so they add up to one
+
+    private FractalNoise(Builder builder) {
+        this.type = builder.type;
+        this.amplitude = builder.amplitude;
+        this.octaveSeeds = new long[builder.octaves];
+        this.octaveFrequencies = new double[builder.octaves];
+        this.octaveAmplitudes = new float[builder.octaves];
+
+        double frequency = builder.frequency;
+        float octaveAmplitude = 1f, amplitudeSum = 0f;
+        for (int octave = 0; octave < builder.octaves; octave++) {
+            octaveSeeds[octave] = mixSeed(builder.seed, octave);
+            octaveFrequencies[octave] = frequency;
+            octaveAmplitudes[octave] = octaveAmplitude;
+            amplitudeSum += octaveAmplitude;
+            frequency *= builder.lacunarity;
+            octaveAmplitude *= builder.gain;
+        }
+        for (int octave = 0; octave < builder.octaves; octave++) {
+            octaveAmplitudes[octave] /= amplitudeSum;
+        }
+    }
+
+    /**
+     * Derive an independent seed from a base seed, using the SplitMix64 finalizer
+     * @param seed base seed, e.g. the world seed
+     * @param stream which derived seed to return
+     * @return Well mixed seed
+     */
+    public static long mixSeed(long seed, long stream) {
+        long mixed = seed + (stream + 1) * 0x9E3779B97F4A7C15L;
+        mixed = (mixed ^ (mixed >>> 30)) * 0xBF58476D1CE4E5B9L;
+        mixed = (mixed ^ (mixed >>> 27)) * 0x94D049BB133111EBL;
+        return mixed ^ (mixed >>> 31);
+    }
+
+    /**
+     * Sample the noise at one point
+     * @param x coordinate in x
+     * @param y coordinate in y
+     * @return Noise value
+     */
+    public float sample(double x, double y) {
+        float value = 0f;
+        for (int octave = 0; octave < octaveSeeds.length; octave++) {
+            double frequency = octaveFrequencies[octave];
+            value += shape(OpenSimplex2S.noise2(octaveSeeds[octave], x * frequency, y * frequency)) * octaveAmplitudes[octave];
+        }
+        return finish(value);
+    }
+
+    /**
+     * Sample a regular grid, one octave at a time through OpenSimplex2S.noise2Grid. Each octave samples
+     * (originX * frequency + column * step * frequency, originY * frequency + row * step * frequency), so values can
+     * differ from sample in the last bits, but the same grid always gives the same values.
+     * @param destination receives width * height values, row by row
+     */
+    public void sampleGrid(double originX, double originY, double step, int width, int height, float[] destination) {
+        sampleGrid(originX, originY, step, width, height, destination, new float[width * height]);
+    }
+
+    /**
+     * Sample a regular grid like above, reusing a scratch buffer for the octave values
+     * @param destination receives width * height values, row by row
+     * @param scratch at least width * height values, overwritten
+     */
+    public void sampleGrid(double originX, double originY, double step, int width, int height, float[] destination, float[] scratch) {
+        int count = width * height;
+        float[] octaveValues = scratch;
+        for (int index = 0; index < count; index++) {
+            destination[index] = 0f;
+        }
+
+        for (int octave = 0; octave < octaveSeeds.length; octave++) {
+            double frequency = octaveFrequencies[octave];
+            float octaveAmplitude = octaveAmplitudes[octave];
+            OpenSimplex2S.noise2Grid(octaveSeeds[octave], originX * frequency, originY * frequency,
+                step * frequency, step * frequency, width, height, octaveValues);
+
+            for (int index = 0; index < count; index++) {
+                destination[index] += shape(octaveValues[index]) * octaveAmplitude;
+            }
+        }
+
+        for (int index = 0; index < count; index++) {
+            destination[index] = finish(destination[index]);
+        }
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public int getOctaves() {
+        return octaveSeeds.length;
+    }
+
+    private float shape(float noise) {
+        if (type == Type.FBM) return noise;
+
+        float ridge = 1f - Math.abs(noise); // Sharp crests where the noise crosses zero
+        return ridge * ridge;
+    }
+
+    private float finish(float value) {
+        if (type == Type.RIDGED) value = value * 2f - 1f; // Ridges sum to [0, 1], center them like fBm
+        return value * amplitude;
+    }
+
+    public enum Type {
+        FBM, // Fractal Brownian motion, rolling hills
+        RIDGED // Folded octaves, mountain ridges
+    }
+
+    public static class Builder {
+        private Type type = Type.FBM; // Default
+        private long seed = 0L; // Default
+        private int octaves = 4; // Default
+        private double frequency = 1.0; // Default, of the first octave
+        private double lacunarity = 2.0; // Default, frequency multiplier per octave
+        private float gain = 0.5f; // Default, amplitude multiplier per octave
+        private float amplitude = 1.0f; // Default
+
+        public Builder setType(Type type) {
+            this.type = type;
+            return this;
+        }
+
+        public Builder setSeed(long seed) {
+            this.seed = seed;
+            return this;
+        }
+
+        public Builder setOctaves(int octaves) {
+            if (octaves < 1) throw new IllegalArgumentException("Fractal noise needs at least one octave");
+            this.octaves = octaves;
+            return this;
+        }
+
+        public Builder setFrequency(double frequency) {
+            this.frequency = frequency;
+            return this;
+        }
+
+        public Builder setLacunarity(double lacunarity) {
+            this.lacunarity = lacunarity;
+            return this;
+        }
+
+        public Builder setGain(float gain) {
+            this.gain = gain;
+            return this;
+        }
+
+        public Builder setAmplitude(float amplitude) {
+            this.amplitude = amplitude;
+            return this;
+        }
+
+        public FractalNoise build() {
+            return new FractalNoise(this);
+        }
+    }
+}
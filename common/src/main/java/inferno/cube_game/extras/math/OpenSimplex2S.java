@@ -1,4 +1,7 @@
 package inferno.cube_game.extras.math;
+
+import java.util.Arrays;
+
 /**
  * K.jpg's OpenSimplex 2, smooth variant ("SuperSimplex")
  */
@@ -35,6 +38,7 @@ public class OpenSimplex2S {
     private static final double NORMALIZER_4D = 0.11127401889945551;
 
     private static final float RSQUARED_2D = 2.0f / 3.0f;
+    private static final int N_CACHED_VERTICES_2D = 8; // Lattice vertices the 2D base can touch around one cell
     private static final float RSQUARED_3D = 3.0f / 4.0f;
     private static final float RSQUARED_4D = 4.0f / 5.0f;
 
@@ -70,6 +74,39 @@ public class OpenSimplex2S {
         return noise2_UnskewedBase(seed, yy + xx, yy - xx);
     }
 
+    /**
+     * 2D OpenSimplex2S/SuperSimplex noise, standard lattice orientation, for a regular grid of points.
+     * Sample (column, row) is taken at (originX + column * stepX, originY + row * stepY) and gives exactly the
+     * same value as noise2 at that point. Gradient lookups are shared between neighbouring samples in the same lattice cell.
+     * @param destination receives width * height values, row by row
+     */
+    public static void noise2Grid(long seed, double originX, double originY, double stepX, double stepY,
+                                  int width, int height, float[] destination) {
+        int[] gradientIndices = new int[N_CACHED_VERTICES_2D];
+        int cachedXsb = 0, cachedYsb = 0;
+        boolean hasCachedCell = false;
+
+        for (int row = 0; row < height; row++) {
+            double y = originY + row * stepY;
+            for (int column = 0; column < width; column++) {
+                double x = originX + column * stepX;
+
+                // Get points for A2* lattice
+                double s = SKEW_2D * (x + y);
+                double xs = x + s, ys = y + s;
+                int xsb = fastFloor(xs), ysb = fastFloor(ys);
+
+                if (!hasCachedCell || xsb != cachedXsb || ysb != cachedYsb) { // Entered another cell, its vertices are new
+                    Arrays.fill(gradientIndices, -1);
+                    cachedXsb = xsb;
+                    cachedYsb = ysb;
+                    hasCachedCell = true;
+                }
+                destination[row * width + column] = noise2_UnskewedBaseCached(seed, xs, ys, xsb, ysb, gradientIndices);
+            }
+        }
+    }
+
     /**
      * 2D  OpenSimplex2S/SuperSimplex noise base.
      */
@@ -178,6 +215,114 @@ public class OpenSimplex2S {
         return value;
     }
 
+    /**
+     * 2D  OpenSimplex2S/SuperSimplex noise base, reusing the gradient indices of a lattice cell between samples.
+     * Gives exactly the same result as noise2_UnskewedBase.
+     */
+    private static float noise2_UnskewedBaseCached(long seed, double xs, double ys, int xsb, int ysb, int[] gradientIndices) {
+
+        // Get offsets, base points were already found by the caller.
+        float xi = (float)(xs - xsb), yi = (float)(ys - ysb);
+
+        // Prime pre-multiplication for hash.
+        long xsbp = xsb * PRIME_X, ysbp = ysb * PRIME_Y;
+
+        // Unskew.
+        float t = (xi + yi) * (float)UNSKEW_2D;
+        float dx0 = xi + t, dy0 = yi + t;
+
+        // First vertex.
+        float a0 = RSQUARED_2D - dx0 * dx0 - dy0 * dy0;
+        float value = (a0 * a0) * (a0 * a0) * gradCached(gradientIndices, 0, seed, xsbp, ysbp, dx0, dy0);
+
+        // Second vertex.
+        float a1 = (float)(2 * (1 + 2 * UNSKEW_2D) * (1 / UNSKEW_2D + 2)) * t + ((float)(-2 * (1 + 2 * UNSKEW_2D) * (1 + 2 * UNSKEW_2D)) + a0);
+        float dx1 = dx0 - (float)(1 + 2 * UNSKEW_2D);
+        float dy1 = dy0 - (float)(1 + 2 * UNSKEW_2D);
+        value += (a1 * a1) * (a1 * a1) * gradCached(gradientIndices, 1, seed, xsbp + PRIME_X, ysbp + PRIME_Y, dx1, dy1);
+
+        // Third and fourth vertices.
+        // Nested conditionals were faster than compact bit logic/arithmetic.
+        float xmyi = xi - yi;
+        if (t < UNSKEW_2D) {
+            if (xi + xmyi > 1) {
+                float dx2 = dx0 - (float)(3 * UNSKEW_2D + 2);
+                float dy2 = dy0 - (float)(3 * UNSKEW_2D + 1);
+                float a2 = RSQUARED_2D - dx2 * dx2 - dy2 * dy2;
+                if (a2 > 0) {
+                    value += (a2 * a2) * (a2 * a2) * gradCached(gradientIndices, 2, seed, xsbp + (PRIME_X << 1), ysbp + PRIME_Y, dx2, dy2);
+                }
+            }
+            else
+            {
+                float dx2 = dx0 - (float)UNSKEW_2D;
+                float dy2 = dy0 - (float)(UNSKEW_2D + 1);
+                float a2 = RSQUARED_2D - dx2 * dx2 - dy2 * dy2;
+                if (a2 > 0) {
+                    value += (a2 * a2) * (a2 * a2) * gradCached(gradientIndices, 3, seed, xsbp, ysbp + PRIME_Y, dx2, dy2);
+                }
+            }
+
+            if (yi - xmyi > 1) {
+                float dx3 = dx0 - (float)(3 * UNSKEW_2D + 1);
+                float dy3 = dy0 - (float)(3 * UNSKEW_2D + 2);
+                float a3 = RSQUARED_2D - dx3 * dx3 - dy3 * dy3;
+                if (a3 > 0) {
+                    value += (a3 * a3) * (a3 * a3) * gradCached(gradientIndices, 4, seed, xsbp + PRIME_X, ysbp + (PRIME_Y << 1), dx3, dy3);
+                }
+            }
+            else
+            {
+                float dx3 = dx0 - (float)(UNSKEW_2D + 1);
+                float dy3 = dy0 - (float)UNSKEW_2D;
+                float a3 = RSQUARED_2D - dx3 * dx3 - dy3 * dy3;
+                if (a3 > 0) {
+                    value += (a3 * a3) * (a3 * a3) * gradCached(gradientIndices, 5, seed, xsbp + PRIME_X, ysbp, dx3, dy3);
+                }
+            }
+        }
+        else
+        {
+            if (xi + xmyi < 0) {
+                float dx2 = dx0 + (float)(1 + UNSKEW_2D);
+                float dy2 = dy0 + (float)UNSKEW_2D;
+                float a2 = RSQUARED_2D - dx2 * dx2 - dy2 * dy2;
+                if (a2 > 0) {
+                    value += (a2 * a2) * (a2 * a2) * gradCached(gradientIndices, 6, seed, xsbp - PRIME_X, ysbp, dx2, dy2);
+                }
+            }
+            else
+            {
+                float dx2 = dx0 - (float)(UNSKEW_2D + 1);
+                float dy2 = dy0 - (float)UNSKEW_2D;
+                float a2 = RSQUARED_2D - dx2 * dx2 - dy2 * dy2;
+                if (a2 > 0) {
+                    value += (a2 * a2) * (a2 * a2) * gradCached(gradientIndices, 5, seed, xsbp + PRIME_X, ysbp, dx2, dy2);
+                }
+            }
+
+            if (yi < xmyi) {
+                float dx2 = dx0 + (float)UNSKEW_2D;
+                float dy2 = dy0 + (float)(UNSKEW_2D + 1);
+                float a2 = RSQUARED_2D - dx2 * dx2 - dy2 * dy2;
+                if (a2 > 0) {
+                    value += (a2 * a2) * (a2 * a2) * gradCached(gradientIndices, 7, seed, xsbp, ysbp - PRIME_Y, dx2, dy2);
+                }
+            }
+            else
+            {
+                float dx2 = dx0 - (float)UNSKEW_2D;
+                float dy2 = dy0 - (float)(UNSKEW_2D + 1);
+                float a2 = RSQUARED_2D - dx2 * dx2 - dy2 * dy2;
+                if (a2 > 0) {
+                    value += (a2 * a2) * (a2 * a2) * gradCached(gradientIndices, 3, seed, xsbp, ysbp + PRIME_Y, dx2, dy2);
+                }
+            }
+        }
+
+        return value;
+    }
+
     /**
      * 3D OpenSimplex2S/SuperSimplex noise, with better visual isotropy in (X, Y).
      * Recommended for 3D terrain and time-varied animations.
@@ -540,10 +685,26 @@ public class OpenSimplex2S {
      */
 
     private static float grad(long seed, long xsvp, long ysvp, float dx, float dy) {
+        int gi = gradIndex(seed, xsvp, ysvp);
+        return GRADIENTS_2D[gi | 0] * dx + GRADIENTS_2D[gi | 1] * dy;
+    }
+
+    private static int gradIndex(long seed, long xsvp, long ysvp) {
         long hash = seed ^ xsvp ^ ysvp;
         hash *= HASH_MULTIPLIER;
         hash ^= hash >> (64 - N_GRADS_2D_EXPONENT + 1);
-        int gi = (int)hash & ((N_GRADS_2D - 1) << 1);
+        return (int)hash & ((N_GRADS_2D - 1) << 1);
+    }
+
+    /**
+     * Like grad, but keeps the gradient index of each vertex of the current cell in a slot, so it is hashed once per cell.
+     */
+    private static float gradCached(int[] gradientIndices, int slot, long seed, long xsvp, long ysvp, float dx, float dy) {
+        int gi = gradientIndices[slot];
+        if (gi < 0) {
+            gi = gradIndex(seed, xsvp, ysvp);
+            gradientIndices[slot] = gi;
+        }
         return GRADIENTS_2D[gi | 0] * dx + GRADIENTS_2D[gi | 1] * dy;
     }
 
@@ -8,10 +8,14 @@ import com.badlogic.gdx.graphics.g2d.SpriteBatch;
 import inferno.cube_game.client.loaders.BlockModelOven;
 import inferno.cube_game.client.loaders.TextureLoader;
 import inferno.cube_game.client.models.blocks.BlockModels;
+import inferno.cube_game.client.platform.GdxFileAccess;
+import inferno.cube_game.client.platform.GdxLogger;
 import inferno.cube_game.client.states.GameStateManager;
 import inferno.cube_game.client.states.MainMenuState;
 import inferno.cube_game.common.blocks.Block;
+import inferno.cube_game.common.platform.Platform;
 import inferno.cube_game.common.registries.BlockRegistry;
+import inferno.cube_game.common.registries.ChunkGeneratorRegistry;
 
 import java.util.concurrent.atomic.AtomicLong;
 
@@ -34,7 +38,10 @@ public class Main extends ApplicationAdapter {
         font = new BitmapFont();
         font.getRegion().getTexture().setFilter(Texture.TextureFilter.Linear, Texture.TextureFilter.Linear);
 
+        Platform.setFileAccess(new GdxFileAccess()); // Before anything in common touches files or logs
+        Platform.setLogger(new GdxLogger());
         BlockRegistry.registerDefaults();
+        ChunkGeneratorRegistry.registerDefaults();
         for (String blockNames : BlockRegistry.getRegisteredBlockNames()){
             Block block = BlockRegistry.getBlock(blockNames);
             if (block == null || block.isAir()) continue;
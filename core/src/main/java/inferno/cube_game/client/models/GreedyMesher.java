@@ -15,18 +15,28 @@ import inferno.cube_game.client.models.blocks.BlockModel;
 import inferno.cube_game.client.models.blocks.BlockModel.Element;
 import inferno.cube_game.common.blocks.Block;
 import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.common.levels.chunks.ChunkKey;
+import inferno.cube_game.common.levels.chunks.ChunkMap;
+import inferno.cube_game.common.levels.chunks.ChunkView;
 
 import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.atomic.AtomicInteger;
 
 public class GreedyMesher {
     private final ConcurrentHashMap<String, Material> materialCache = new ConcurrentHashMap<>();
-    private final ConcurrentHashMap<Vector3, Model> modelCache = new ConcurrentHashMap<>();
+    private final ChunkMap<Model> modelCache = new ChunkMap<>();
     private final ConcurrentHashMap<String, MeshPartBuilder> meshCache = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Long> evictedChunkKeys = new ConcurrentLinkedQueue<>(); // Models to dispose on the render thread
 
-    public Model generateMesh(Chunk chunk) {
-        Vector3 chunkKey = new Vector3(chunk.getChunkX(), chunk.getChunkY(), chunk.getChunkZ());
+    /**
+     * Build or get the cached model for a chunk. Pass a snapshot when the chunk can still be edited on another thread.
+     * @param chunk blocks to mesh
+     * @return Model of the chunk
+     */
+    public Model generateMesh(ChunkView chunk) {
+        long chunkKey = ChunkKey.pack(chunk.getChunkX(), chunk.getChunkY(), chunk.getChunkZ());
 
         int chunkOffsetX = chunk.getChunkX() * Chunk.CHUNK_SIZE;
         int chunkOffsetY = chunk.getChunkY() * Chunk.CHUNK_SIZE;
@@ -38,47 +48,40 @@ public class GreedyMesher {
             return cachedModel;
         }
 
-        int chunkSize = Chunk.CHUNK_SIZE;
-
         final ModelBuilder modelBuilder = new ModelBuilder();
         modelBuilder.begin();
 
-        boolean hasVisibleFaces = false;
-
-        for (int blockPositionX = 0; blockPositionX < chunkSize; blockPositionX++) {
-            for (int blockPositionY = 0; blockPositionY < chunkSize; blockPositionY++) {
-                for (int blockPositionZ = 0; blockPositionZ < chunkSize; blockPositionZ++) {
-                    Block block = chunk.getBlock(blockPositionX, blockPositionY, blockPositionZ);
+        AtomicInteger visibleFaces = new AtomicInteger();
 
-                    if (block == null || block.isAir() || chunk.canCullBlock(blockPositionX, blockPositionY, blockPositionZ)) continue;
+        chunk.forEachNonAirBlock((blockPositionX, blockPositionY, blockPositionZ, paletteIndex) -> {
+            if (chunk.canCullBlock(blockPositionX, blockPositionY, blockPositionZ)) return;
 
-                    BlockModel blockModel = Main.blockModelOven.createOrGetBlockModel(block);
+            Block block = chunk.getPaletteBlock(paletteIndex);
+            BlockModel blockModel = Main.blockModelOven.createOrGetBlockModel(block);
 
-                    if (blockModel == null || blockModel.textures.isEmpty() || blockModel.elements.isEmpty()) continue;
+            if (blockModel == null || blockModel.textures.isEmpty() || blockModel.elements.isEmpty()) return;
 
-                    modelBuilder.node().id = block.getDomain().concat(":").concat(block.getRegistryName());
-                    for (Element element : blockModel.elements) {
-                        for (Map.Entry<String, String> faceEntry : element.faces.entrySet()) {
-                            String faceDirection = faceEntry.getKey();
+            modelBuilder.node().id = block.getDomain().concat(":").concat(block.getRegistryName());
+            for (Element element : blockModel.elements) {
+                for (Map.Entry<String, String> faceEntry : element.faces.entrySet()) {
+                    String faceDirection = faceEntry.getKey();
 
-                            if (chunk.isFaceNotVisible(blockPositionX, blockPositionY, blockPositionZ, faceDirection)) continue;
+                    if (chunk.isFaceNotVisible(blockPositionX, blockPositionY, blockPositionZ, faceDirection)) continue;
 
-                            String textureKey = faceEntry.getValue();
-                            makeMeshFace(modelBuilder, element, faceDirection, blockModel.textures.get(textureKey),
-                                blockPositionX + chunkOffsetX, blockPositionY + chunkOffsetY, blockPositionZ + chunkOffsetZ, block);
-                            hasVisibleFaces = true;
-                        }
-                    }
+                    String textureKey = faceEntry.getValue();
+                    makeMeshFace(modelBuilder, element, faceDirection, blockModel.textures.get(textureKey),
+                        blockPositionX + chunkOffsetX, blockPositionY + chunkOffsetY, blockPositionZ + chunkOffsetZ, block);
+                    visibleFaces.incrementAndGet();
                 }
             }
-        }
+        });
 
         Model model = modelBuilder.end();
 
         clearMaterialCache();
         meshCache.clear();
 
-        if (!hasVisibleFaces) {
+        if (visibleFaces.get() == 0) {
             model.dispose();
             return modelCache.put(chunkKey, new Model());
         }
@@ -186,12 +189,31 @@ public class GreedyMesher {
         //modelCache.keySet().clear();
     }
 
+    /**
+     * Mark the model of a chunk for disposal. Safe to call from any thread, the model is disposed by the next disposeEvictedModels call.
+     * @param chunkKey packed key of the chunk
+     */
+    public void queueDispose(long chunkKey) {
+        evictedChunkKeys.add(chunkKey);
+    }
+
+    /**
+     * Dispose the models of chunks queued with queueDispose. Must run on the render thread, which owns the GL resources.
+     */
+    public void disposeEvictedModels() {
+        Long chunkKey;
+        while ((chunkKey = evictedChunkKeys.poll()) != null) {
+            Model model = modelCache.remove(chunkKey);
+            if (model != null) model.dispose();
+        }
+    }
+
     public void clearMaterialCache() {
         materialCache.clear();
     }
 
     public void dispose() {
-        modelCache.values().forEach(Model::dispose);
+        modelCache.forEach((chunkKey, model) -> model.dispose());
         modelCache.clear();
         materialCache.clear();
     }
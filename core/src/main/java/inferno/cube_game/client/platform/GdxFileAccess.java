@@ -0,0 +1,17 @@
+package inferno.cube_game.client.platform;
+
+import com.badlogic.gdx.Gdx;
+import inferno.cube_game.common.platform.FileAccess;
+
+import java.nio.file.Path;
+
+/**
+ * Resolves writable files through libGDX's local storage, the working directory on desktop
+ * @author inferno4you
+ */
+public class GdxFileAccess implements FileAccess {
+    @Override
+    public Path getWritablePath(String relativePath) {
+        return Gdx.files.local(relativePath).file().toPath();
+    }
+}
@@ -0,0 +1,21 @@
+package inferno.cube_game.client.platform;
+
+import com.badlogic.gdx.Gdx;
+import inferno.cube_game.common.platform.GameLogger;
+
+/**
+ * Forwards log messages to the libGDX application, so they follow its log level
+ * @author inferno4you
+ */
+public class GdxLogger implements GameLogger {
+    @Override
+    public void info(String tag, String message) {
+        Gdx.app.log(tag, message);
+    }
+
+    @Override
+    public void error(String tag, String message, Throwable throwable) {
+        if (throwable == null) Gdx.app.error(tag, message);
+        else Gdx.app.error(tag, message, throwable);
+    }
+}
@@ -9,9 +9,20 @@ import com.badlogic.gdx.math.Vector3;
 import inferno.cube_game.client.models.GreedyMesher;
 import inferno.cube_game.common.levels.World;
 import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.common.levels.chunks.ChunkFace;
+import inferno.cube_game.common.levels.chunks.ChunkKey;
+import inferno.cube_game.common.levels.chunks.ChunkSnapshot;
+import inferno.cube_game.common.levels.chunks.ChunkView;
+import inferno.cube_game.common.levels.storage.WorldInfo;
+import inferno.cube_game.common.platform.Platform;
+import inferno.cube_game.common.registries.ChunkGeneratorRegistry;
+
+import java.io.IOException;
+import java.nio.file.Path;
 
 
 public class WorldRenderer {
+    private static final String SAVE_DIRECTORY = "saves/world"; // Relative to the game's writable location
     private World world;
     private ModelBatch batch;
     private float cameraYaw = 0f; // Yaw rotation (left-right)
@@ -20,6 +31,7 @@ public class WorldRenderer {
     private final float maxPitch = 89f; // Prevent camera from flipping
     private ShapeRenderer shapeRenderer = new ShapeRenderer();
     private Vector3 feetPosition; // Player's feet position
+    private final Vector3 viewDirection = new Vector3(); // Camera direction, read by the update thread to order chunk generation
     private final float eyeOffset = 1.4f; // Camera height offset from feet (eye level)
     private float lastCull = 0; // Last time chunks were culled
     private ModelInstance chunkInstance;
@@ -33,7 +45,10 @@ public class WorldRenderer {
     ModelInstance instance;
 
     public WorldRenderer(Camera camera, Environment environment) {
-        this.world = new World(); // Generate a new world
+        Path saveDirectory = Platform.getFileAccess().getWritablePath(SAVE_DIRECTORY);
+        WorldInfo worldInfo = readWorldInfo(saveDirectory); // A pregenerated save brings its own seed and generator
+        this.world = new World(worldInfo.getSeed(), worldInfo.getGeneratorId(), World.DEFAULT_GENERATION_THREADS,
+            saveDirectory); // Load the saved world, generating whatever was never saved
         this.batch = //new ModelBatch(new DefaultShaderProvider() {
         //    @Override
         //    protected Shader createShader(Renderable renderable) {
@@ -45,6 +60,7 @@ public class WorldRenderer {
         feetPosition = camera.position.cpy(); // Set the feet position to the camera position
         this.environment = environment;
         this.greedyMesher = new GreedyMesher();
+        world.addEvictionListener((chunkKey, chunk) -> greedyMesher.queueDispose(chunkKey)); // Free the mesh with the chunk
         chunkModelCache = new ModelCache();
         globalModel = new Model();
         instance = new ModelInstance(globalModel);
@@ -64,7 +80,7 @@ public class WorldRenderer {
     }
 
     public void update(float deltaTime) {
-        world.updateChunks(feetPosition);
+        world.updateChunks(feetPosition.x, feetPosition.y, feetPosition.z, viewDirection.x, viewDirection.y, viewDirection.z);
     }
 
     private void handleMouseMovement(Camera camera) {
@@ -93,6 +109,7 @@ public class WorldRenderer {
         // Normalize the direction vector to avoid distortion
         camera.direction.nor();
         camera.update();  // Apply the changes to the camera
+        viewDirection.set(camera.direction);
     }
 
     private Vector3 getPlayerInput() {
@@ -122,7 +139,22 @@ public class WorldRenderer {
 
     }
 
+    /**
+     * Get the seed and generator of the save, the defaults for a new one
+     * @param saveDirectory directory of the save
+     * @return Stored info, or the default seed and the noise generator
+     */
+    private static WorldInfo readWorldInfo(Path saveDirectory) {
+        try {
+            WorldInfo stored = WorldInfo.read(saveDirectory);
+            return stored != null ? stored : new WorldInfo(0L, ChunkGeneratorRegistry.NOISE);
+        } catch (IOException e) {
+            throw new RuntimeException("Failed to read the world info in " + saveDirectory, e);
+        }
+    }
+
     private void renderChunks(Camera camera) {
+        greedyMesher.disposeEvictedModels(); // Meshes of chunks the world dropped since the last frame
         Vector3 frustumPosition = feetPosition;
 
         instance.nodes.clear();
@@ -135,26 +167,27 @@ public class WorldRenderer {
         int z = (int) (frustumPosition.z / Chunk.CHUNK_SIZE);
 
         // Load nearby chunks
-        world.getChunkKeysToLoad(x, y, z).forEach(loadedChunk -> {
-            int chunkX = (int) loadedChunk.x;
-            int chunkY = (int) loadedChunk.y;
-            int chunkZ = (int) loadedChunk.z;
+        for (long loadedChunk : world.getChunkKeysToLoad(x, y, z)) {
+            int chunkX = ChunkKey.getX(loadedChunk);
+            int chunkY = ChunkKey.getY(loadedChunk);
+            int chunkZ = ChunkKey.getZ(loadedChunk);
 
             Chunk chunk = world.getChunk(chunkX, chunkY, chunkZ);
 
-            if (chunk == null) return;
-            if (chunk.onlyAir()) return;
-            if (!checkSurrondingChunksForAir(world, chunk)) return;
+            if (chunk == null) continue;
+            ChunkSnapshot snapshot = chunk.snapshot(); // Edits can land on the update thread while this frame reads the chunk
+            if (snapshot.onlyAir()) continue;
+            if (!checkSurrondingChunksForAir(world, snapshot)) continue;
 
             //batch.render(new VoxelChunk(chunk));
-            Model model = greedyMesher.generateMesh(chunk);
-            if (model == null) return;
+            Model model = greedyMesher.generateMesh(snapshot);
+            if (model == null) continue;
 
             instance.nodes.addAll(model.nodes);
             instance.model.meshes.addAll(model.meshes);
             instance.model.meshParts.addAll(model.meshParts);
             instance.materials.addAll(model.materials);
-        });
+        }
 
         batch.begin(camera);
 
@@ -163,34 +196,18 @@ public class WorldRenderer {
         batch.end();
     }
 
-    private boolean checkSurrondingChunksForAir(World world, Chunk chunk) {
+    private boolean checkSurrondingChunksForAir(World world, ChunkView chunk) {
         int chunkX = chunk.getChunkX();
         int chunkY = chunk.getChunkY();
         int chunkZ = chunk.getChunkZ();
 
-        Chunk top = world.getChunk(chunkX, chunkY+1, chunkZ);
-        if (top == null) return true;
-        if (!top.hasNoAirInAnyLayer()) return true;
-
-        Chunk bottom = world.getChunk(chunkX, chunkY-1, chunkZ);
-        if (bottom == null) return true;
-        if (!bottom.hasNoAirInAnyLayer()) return true;
-
-        Chunk left = world.getChunk(chunkX-1, chunkY, chunkZ);
-        if (left == null) return true;
-        if (!left.hasNoAirInAnyLayer()) return true;
-
-        Chunk right  = world.getChunk(chunkX+1, chunkY, chunkZ);
-        if (right == null) return true;
-        if (!right.hasNoAirInAnyLayer()) return true;
-
-        Chunk front  = world.getChunk(chunkX, chunkY, chunkZ+1);
-        if (front == null) return true;
-        if (!front.hasNoAirInAnyLayer()) return true;
-
-        Chunk back  = world.getChunk(chunkX, chunkY, chunkZ-1);
-        if (back == null) return true;
-        return !back.hasNoAirInAnyLayer();
+        // The chunk is hidden only if every neighbour covers the touching face completely
+        for (ChunkFace face : ChunkFace.values()) {
+            Chunk neighbour = world.getChunk(chunkX + face.getOffsetX(), chunkY + face.getOffsetY(), chunkZ + face.getOffsetZ());
+            if (neighbour == null) return true;
+            if (!neighbour.snapshot().isFaceFull(face.opposite())) return true;
+        }
+        return false;
     }
 
     public void dispose() {
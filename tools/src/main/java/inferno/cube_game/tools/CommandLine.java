@@ -0,0 +1,79 @@
+package inferno.cube_game.tools;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Options of the form --name value, with defaults for everything not given
+ * @author inferno4you
+ */
+public class CommandLine {
+    private final Map<String, String> options = new HashMap<>();
+
+    /**
+     * @param args arguments passed to main
+     */
+    public CommandLine(String[] args) {
+        for (int index = 0; index < args.length; index++) {
+            String arg = args[index];
+            if (!arg.startsWith("--")) throw new IllegalArgumentException("Expected an option starting with --, got " + arg);
+
+            String name = arg.substring(2);
+            if (index + 1 < args.length && !args[index + 1].startsWith("--")) {
+                options.put(name, args[++index]);
+            } else {
+                options.put(name, "true"); // Flag without a value
+            }
+        }
+    }
+
+    public boolean has(String name) {
+        return options.containsKey(name);
+    }
+
+    public String getString(String name, String defaultValue) {
+        return options.getOrDefault(name, defaultValue);
+    }
+
+    public int getInt(String name, int defaultValue) {
+        String value = options.get(name);
+        if (value == null) return defaultValue;
+        try {
+            return Integer.parseInt(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects a whole number, got " + value);
+        }
+    }
+
+    public long getLong(String name, long defaultValue) {
+        String value = options.get(name);
+        if (value == null) return defaultValue;
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("--" + name + " expects a whole number, got " + value);
+        }
+    }
+
+    /**
+     * Get a comma separated list of whole numbers, e.g. --threads 1,2,4
+     * @param name option name
+     * @param defaultValue used when the option is missing
+     * @return Parsed numbers
+     */
+    public int[] getInts(String name, int... defaultValue) {
+        String value = options.get(name);
+        if (value == null) return defaultValue;
+
+        String[] parts = value.split(",");
+        int[] numbers = new int[parts.length];
+        for (int index = 0; index < parts.length; index++) {
+            try {
+                numbers[index] = Integer.parseInt(parts[index].trim());
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("--" + name + " expects comma separated whole numbers, got " + value);
+            }
+        }
+        return numbers;
+    }
+}
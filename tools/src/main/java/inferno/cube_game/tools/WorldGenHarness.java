@@ -0,0 +1,166 @@
+package inferno.cube_game.tools;
+
+import inferno.cube_game.common.blocks.Block;
+import inferno.cube_game.common.levels.World;
+import inferno.cube_game.common.levels.chunks.Chunk;
+import inferno.cube_game.common.levels.chunks.ChunkKey;
+import inferno.cube_game.common.levels.chunks.ChunkView;
+import inferno.cube_game.common.registries.BlockRegistry;
+import inferno.cube_game.common.registries.ChunkGeneratorRegistry;
+
+import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Generates a cube of chunks headless through World with different numbers of worker threads and checks that every run
+ * produces the same blocks, by hashing each chunk and comparing against the first run. Reports decorated chunks per
+ * second and the latency from requesting a chunk to it being decorated.
+ * <p>
+ * Options: --generator id, --seed n, --center x,y,z (chunks), --radius n (chunks), --threads 1,4, --runs n, --timeout seconds.
+ * Exits with status 1 if any hash differs.
+ * @author inferno4you
+ */
+public class WorldGenHarness {
+    private static final int MAX_REPORTED_MISMATCHES = 5;
+
+    public static void main(String[] args) throws Exception {
+        CommandLine commandLine = new CommandLine(args);
+        String generatorId = commandLine.getString("generator", ChunkGeneratorRegistry.NOISE);
+        long seed = commandLine.getLong("seed", 0L);
+        int[] center = commandLine.getInts("center", 0, 4, 0);
+        int radius = commandLine.getInt("radius", 4);
+        int[] threadCounts = commandLine.getInts("threads", 1, World.DEFAULT_GENERATION_THREADS);
+        int runs = commandLine.getInt("runs", 2);
+        int timeoutSeconds = commandLine.getInt("timeout", 600);
+        if (center.length != 3) throw new IllegalArgumentException("--center expects x,y,z");
+
+        BlockRegistry.registerDefaults();
+        ChunkGeneratorRegistry.registerDefaults();
+
+        long[] keys = getRegion(center[0], center[1], center[2], radius);
+        System.out.printf("Generating %d chunks with %s, seed %d, around chunk %d,%d,%d%n", keys.length, generatorId, seed, center[0], center[1], center[2]);
+
+        long[] baseline = null;
+        String baselineName = null;
+        boolean allMatch = true;
+        for (int threads : threadCounts) {
+            for (int run = 1; run <= runs; run++) {
+                String name = threads + " thread" + (threads == 1 ? "" : "s") + ", run " + run;
+                long[] hashes = generate(name, seed, generatorId, threads, keys, timeoutSeconds);
+
+                if (baseline == null) {
+                    baseline = hashes;
+                    baselineName = name;
+                    continue;
+                }
+                allMatch &= compare(keys, baseline, baselineName, hashes, name);
+            }
+        }
+
+        System.out.println(allMatch ? "All runs produced identical chunks" : "Runs produced different chunks");
+        if (!allMatch) System.exit(1);
+    }
+
+    /**
+     * Generate the chunks in a new world and hash them
+     * @return Hash of each chunk, in the order of the keys
+     */
+    private static long[] generate(String name, long seed, String generatorId, int threads, long[] keys, int timeoutSeconds) throws Exception {
+        World world = new World(seed, generatorId, threads);
+        long[] latencies = new long[keys.length];
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[keys.length];
+
+        long start = System.nanoTime();
+        for (int index = 0; index < keys.length; index++) {
+            int latencyIndex = index;
+            long requested = System.nanoTime();
+            futures[index] = world.requestChunk(ChunkKey.getX(keys[index]), ChunkKey.getY(keys[index]), ChunkKey.getZ(keys[index]))
+                .thenAccept(chunk -> latencies[latencyIndex] = System.nanoTime() - requested);
+        }
+        CompletableFuture.allOf(futures).get(timeoutSeconds, TimeUnit.SECONDS);
+        long elapsed = System.nanoTime() - start;
+
+        long[] hashes = new long[keys.length];
+        short[] blocks = new short[Chunk.CHUNK_VOLUME];
+        for (int index = 0; index < keys.length; index++) {
+            Chunk chunk = world.getChunk(ChunkKey.getX(keys[index]), ChunkKey.getY(keys[index]), ChunkKey.getZ(keys[index]));
+            hashes[index] = hashChunk(chunk, blocks);
+        }
+        world.shutdown();
+
+        Arrays.sort(latencies);
+        System.out.printf("%s: %.1f ms, %.1f chunks/s, latency p50 %.1f ms, p90 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+            name, elapsed / 1e6, keys.length / (elapsed / 1e9),
+            percentile(latencies, 0.50) / 1e6, percentile(latencies, 0.90) / 1e6, percentile(latencies, 0.99) / 1e6,
+            latencies[latencies.length - 1] / 1e6);
+        return hashes;
+    }
+
+    private static boolean compare(long[] keys, long[] expected, String expectedName, long[] actual, String actualName) {
+        int mismatches = 0;
+        for (int index = 0; index < keys.length; index++) {
+            if (expected[index] == actual[index]) continue;
+
+            if (mismatches < MAX_REPORTED_MISMATCHES) {
+                System.out.printf("  chunk %d,%d,%d differs between %s and %s%n",
+                    ChunkKey.getX(keys[index]), ChunkKey.getY(keys[index]), ChunkKey.getZ(keys[index]), expectedName, actualName);
+            }
+            mismatches++;
+        }
+        if (mismatches > 0) System.out.printf("  %d of %d chunks differ%n", mismatches, keys.length);
+        return mismatches == 0;
+    }
+
+    /**
+     * Hash the blocks of a chunk by registry name, so chunks compare equal however their palettes are ordered
+     * @param chunk chunk to hash
+     * @param blocks scratch array of CHUNK_VOLUME entries
+     * @return 64 bit hash
+     */
+    static long hashChunk(Chunk chunk, short[] blocks) {
+        ChunkView view = chunk.snapshot(); // Palette and indices from the same version
+        Block[] palette = view.getPalette();
+        long[] paletteHashes = new long[palette.length];
+        for (int index = 0; index < palette.length; index++) {
+            paletteHashes[index] = (palette[index].getDomain() + ":" + palette[index].getRegistryName()).hashCode();
+        }
+        view.copyInto(blocks);
+
+        long hash = 0xCBF29CE484222325L; // FNV-1a over the block name hashes
+        for (int index = 0; index < Chunk.CHUNK_VOLUME; index++) {
+            hash = (hash ^ paletteHashes[blocks[index]]) * 0x100000001B3L;
+        }
+        return hash;
+    }
+
+    private static long percentile(long[] sorted, double fraction) {
+        return sorted[Math.min(sorted.length - 1, (int) (sorted.length * fraction))];
+    }
+
+    /**
+     * Get the keys of a cube of chunks, nearest to the center first
+     */
+    private static long[] getRegion(int centerX, int centerY, int centerZ, int radius) {
+        int diameter = radius * 2 + 1;
+        long[] keys = new long[diameter * diameter * diameter];
+        int[] distances = new int[keys.length];
+        int count = 0;
+        for (int x = -radius; x <= radius; x++) {
+            for (int y = -radius; y <= radius; y++) {
+                for (int z = -radius; z <= radius; z++) {
+                    keys[count] = ChunkKey.pack(centerX + x, centerY + y, centerZ + z);
+                    distances[count++] = x * x + y * y + z * z;
+                }
+            }
+        }
+
+        Integer[] order = new Integer[keys.length];
+        for (int index = 0; index < order.length; index++) order[index] = index;
+        Arrays.sort(order, (first, second) -> Integer.compare(distances[first], distances[second]));
+
+        long[] sorted = new long[keys.length];
+        for (int index = 0; index < order.length; index++) sorted[index] = keys[order[index]];
+        return sorted;
+    }
+}
@@ -0,0 +1,169 @@
+package inferno.cube_game.tools;
+
+import inferno.cube_game.common.levels.World;
+import inferno.cube_game.common.levels.chunks.GenerationStage;
+import inferno.cube_game.common.levels.storage.ChunkSaveService;
+import inferno.cube_game.common.levels.storage.WorldInfo;
+import inferno.cube_game.common.registries.BlockRegistry;
+import inferno.cube_game.common.registries.ChunkGeneratorRegistry;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Stream;
+
+/**
+ * Generates every chunk in a cube around a point headless and writes all of them to a save, so worlds can be handed out
+ * with their spawn area ready. Works through the cube one slab along x at a time on all cores, requesting the next slab
+ * while the current one finishes. A finished slab is saved and the one before it dropped, since only its direct
+ * neighbours still read it, so memory stays at a few slabs whatever the radius. Chunks already in the save are read
+ * back instead of generated and not written again, so an interrupted run picks up where it stopped.
+ * <p>
+ * Options: --save directory, --generator id, --seed n, --center x,y,z (chunks), --radius n (chunks), --threads n,
+ * --timeout seconds. The seed and generator are stored in the save and the game opens it with them. Without --seed and
+ * --generator an existing save keeps its own, and giving different ones fails instead of mixing two worlds.
+ * Exits with status 1 if any chunk could not be written.
+ * @author inferno4you
+ */
+public class WorldPregenerator {
+    private static final String DEFAULT_SAVE_DIRECTORY = "saves/world"; // Where the game keeps its world, relative to the run directory
+    private static final long PROGRESS_INTERVAL_MILLIS = 2000;
+
+    public static void main(String[] args) throws Exception {
+        CommandLine commandLine = new CommandLine(args);
+        Path saveDirectory = Path.of(commandLine.getString("save", DEFAULT_SAVE_DIRECTORY));
+        WorldInfo stored = WorldInfo.read(saveDirectory); // Continue an existing save with its own settings
+        String generatorId = commandLine.getString("generator", stored != null ? stored.getGeneratorId() : ChunkGeneratorRegistry.NOISE);
+        long seed = commandLine.getLong("seed", stored != null ? stored.getSeed() : 0L);
+        int[] center = commandLine.getInts("center", 0, 4, 0);
+        int radius = commandLine.getInt("radius", 8);
+        int threads = commandLine.getInt("threads", Runtime.getRuntime().availableProcessors());
+        int timeoutSeconds = commandLine.getInt("timeout", 3600);
+        if (center.length != 3) throw new IllegalArgumentException("--center expects x,y,z");
+        if (radius < 0) throw new IllegalArgumentException("--radius can not be negative");
+        if (threads < 1) throw new IllegalArgumentException("--threads needs at least one thread");
+
+        BlockRegistry.registerDefaults();
+        ChunkGeneratorRegistry.registerDefaults();
+
+        int diameter = radius * 2 + 1;
+        Progress progress = new Progress((long) diameter * diameter * diameter);
+        System.out.printf("Pregenerating %d chunks with %s, seed %d, around chunk %d,%d,%d into %s on %d thread%s%n",
+            progress.total, generatorId, seed, center[0], center[1], center[2], saveDirectory.toAbsolutePath(), threads, threads == 1 ? "" : "s");
+
+        World world = new World(seed, generatorId, threads, saveDirectory);
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        ChunkSaveService chunkSaveService = world.getChunkSaveService();
+        try {
+            int firstX = center[0] - radius, lastX = center[0] + radius;
+            CompletableFuture<Void> slab = requestSlab(world, firstX, center, radius, progress);
+            for (int x = firstX; x <= lastX; x++) {
+                CompletableFuture<Void> nextSlab = x < lastX ? requestSlab(world, x + 1, center, radius, progress) : null;
+                awaitSlab(slab, progress, deadline);
+                saveSlab(world, x, center, radius);
+                unloadSlab(world, x - 1, center, radius + GenerationStage.DECORATION.getNeighbourRadius()); // Also the neighbours pulled in around the cube
+                slab = nextSlab;
+            }
+        } finally {
+            world.shutdown(); // Writes everything queued so far, also when generation failed
+        }
+
+        long failed = chunkSaveService.getFailedCount();
+        double seconds = (System.nanoTime() - progress.start) / 1e9;
+        System.out.printf("Wrote %d chunks, %d were saved already, %d failed, in %.1f s (%.1f chunks/s). Region files take %.1f MB%n",
+            chunkSaveService.getSavedCount(), progress.total - chunkSaveService.getSavedCount() - failed, failed,
+            seconds, progress.total / seconds, getRegionBytes(saveDirectory) / (1024.0 * 1024.0));
+        if (failed > 0) System.exit(1);
+    }
+
+    /**
+     * Request every chunk of the cube with one x coordinate to be fully generated
+     * @return Future completed once all of them are
+     */
+    private static CompletableFuture<Void> requestSlab(World world, int x, int[] center, int radius, Progress progress) {
+        int diameter = radius * 2 + 1;
+        CompletableFuture<?>[] futures = new CompletableFuture<?>[diameter * diameter];
+        int count = 0;
+        for (int y = center[1] - radius; y <= center[1] + radius; y++) {
+            for (int z = center[2] - radius; z <= center[2] + radius; z++) {
+                futures[count++] = world.requestChunk(x, y, z).thenRun(progress.completed::incrementAndGet);
+            }
+        }
+        return CompletableFuture.allOf(futures);
+    }
+
+    /**
+     * Wait for a slab to finish, reporting progress meanwhile
+     */
+    private static void awaitSlab(CompletableFuture<Void> slab, Progress progress, long deadline) throws Exception {
+        while (true) {
+            try {
+                slab.get(PROGRESS_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                break;
+            } catch (TimeoutException e) {
+                if (System.nanoTime() > deadline) throw new TimeoutException("Pregeneration did not finish within --timeout");
+            }
+            progress.reportIfDue();
+        }
+        progress.reportIfDue();
+    }
+
+    private static void saveSlab(World world, int x, int[] center, int radius) throws InterruptedException {
+        for (int y = center[1] - radius; y <= center[1] + radius; y++) {
+            for (int z = center[2] - radius; z <= center[2] + radius; z++) {
+                if (!world.saveChunk(x, y, z)) throw new IllegalStateException("Chunk " + x + "," + y + "," + z + " was not generated");
+            }
+        }
+    }
+
+    private static void unloadSlab(World world, int x, int[] center, int radius) {
+        for (int y = center[1] - radius; y <= center[1] + radius; y++) {
+            for (int z = center[2] - radius; z <= center[2] + radius; z++) {
+                world.unloadChunk(x, y, z);
+            }
+        }
+    }
+
+    private static long getRegionBytes(Path saveDirectory) throws IOException {
+        if (!Files.isDirectory(saveDirectory)) return 0;
+        try (Stream<Path> files = Files.list(saveDirectory)) {
+            long bytes = 0;
+            for (Path file : (Iterable<Path>) files::iterator) {
+                if (file.getFileName().toString().endsWith(".region")) bytes += Files.size(file);
+            }
+            return bytes;
+        }
+    }
+
+    /**
+     * Chunks finished so far and when progress was last printed
+     */
+    private static final class Progress {
+        private final long total;
+        private final AtomicInteger completed = new AtomicInteger(); // Incremented by the generation threads
+        private final long start = System.nanoTime();
+        private long lastReport = start;
+
+        private Progress(long total) {
+            this.total = total;
+        }
+
+        void reportIfDue() {
+            if (System.nanoTime() - lastReport >= TimeUnit.MILLISECONDS.toNanos(PROGRESS_INTERVAL_MILLIS)) report();
+        }
+
+        void report() {
+            lastReport = System.nanoTime();
+            int done = completed.get();
+            double seconds = (lastReport - start) / 1e9;
+            double chunksPerSecond = done / seconds;
+            long remainingSeconds = chunksPerSecond > 0 ? (long) ((total - done) / chunksPerSecond) : 0;
+            System.out.printf("  %d/%d chunks (%.1f%%), %.1f chunks/s, %d:%02d left%n",
+                done, total, 100.0 * done / total, chunksPerSecond, remainingSeconds / 60, remainingSeconds % 60);
+        }
+    }
+}